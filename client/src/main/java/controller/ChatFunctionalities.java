@@ -1,6 +1,8 @@
 package controller;
 
 import model.*;
+import model.enums.AudioCodecType;
+import util.ChunkAssembler;
 
 import java.io.File;
 import java.util.List;
@@ -8,7 +10,7 @@ import java.util.List;
 public interface ChatFunctionalities {
 
     MessageContainer sendMessage(User destination, String message);
-    void sendFile(User destination, File file);
+    void sendFile(List<User> destinations, File file);
     void disconnect();
     void receiveMessage(MessageContainer message);
     void fileSent(MessageContainer fileMessage);
@@ -16,17 +18,34 @@ public interface ChatFunctionalities {
     void removeUser(User user);
     void initializeContext(ContextContent context);
     void requestFile(User source, long fileId, String absolutePath);
-    void receiveFile(FileDescriptor fileDescriptor, List<FileContent> list);
-    void startRecording();
-    void stopRecording(User destination);
-    void sendAudio(User destination, byte[] audio);
+    void receiveFile(long correlationId, User source, FileDescriptor fileDescriptor, ChunkAssembler chunks);
+    void cancelTransfers();
+    void startRecording(User destination);
+    void stopRecording();
+    long startAudio(User destination, AudioCodecType codecType, int sampleRate);
+    void sendAudioChunk(long correlationId, byte[] data);
+    void endAudio(long correlationId);
     void audioSent(MessageContainer message);
     void requestAudio(User source, long audioId);
-    void receiveAudio(AudioDescriptor descriptor, List<AudioContent> list);
+    void receiveAudio(AudioDescriptor descriptor, ChunkAssembler chunks);
+    void audioReceived(User source, AudioDescriptor descriptor, ChunkAssembler chunks);
     void playAudio(byte[] audio);
     void requestControl(User destination);
     void startGivingControl(User destination, ScreenInformation screenInformation);
     void stopGivingControl();
     void sendFrame(User destination, Frame frame);
     void provokeEvent(Event event);
+    void frameAcknowledged(FrameAck frameAck);
+    void call(User destination);
+    void callRequested(User source, CallInformation callInformation);
+    void acceptCall(User source);
+    void callAccepted(User source, CallInformation callInformation);
+    void hangUp();
+    void callEnded(User source);
+    void sendVoiceFrame(VoiceFrame frame);
+    void receiveVoiceFrame(User source, VoiceFrame frame);
+    void joinRoom(String name);
+    void roomJoined(RoomInformation roomInformation);
+    void leaveRoom();
+    void receiveRoomVoiceFrame(VoiceFrame frame);
 }
@@ -7,5 +7,7 @@ import model.User;
 public interface ScreenFunctionalities {
 
     void updateScreen(User source, Frame frame);
+    void streamEnded(User source);
     void sendEvent(MouseEvent event);
+    void acknowledgeFrame(long sequenceNumber);
 }
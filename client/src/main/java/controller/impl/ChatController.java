@@ -11,21 +11,27 @@ import javafx.stage.Stage;
 import model.*;
 import model.Event;
 import model.Frame;
+import model.enums.AudioCodecType;
 import network.ServerServices;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import util.ChunkAssembler;
 import util.Utils;
+import util.cache.CachedContent;
+import util.cache.ContentCache;
 import util.image.ScreenLiveStream;
 import util.voice.VoicePlayback;
 import util.voice.VoiceRecorder;
 import view.ChatView;
+import view.ScreenView;
 
 import java.awt.*;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.*;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ChatController implements ChatFunctionalities {
 
@@ -37,8 +43,17 @@ public class ChatController implements ChatFunctionalities {
     @Inject private VoiceRecorder voiceRecorder;
     @Inject private VoicePlayback voicePlayback;
     @Inject private ScreenLiveStream screenLiveStream;
+    @Inject private ContentCache contentCache;
+    @Inject private ScreenView screenView;
 
-    private Map<Long, String> toSaveFilePaths = new HashMap<>();
+    //Paths chosen by the user for the files being downloaded, by correlation id.
+    private Map<Long, String> toSaveFilePaths = new ConcurrentHashMap<>();
+    //User of the current call, from the moment it is requested until it ends.
+    private volatile User callPeer;
+    //Format announced by the user calling, until the call is accepted.
+    private volatile CallInformation incomingCall;
+    //Voice room joined, the user is either in a call or in a room.
+    private volatile String room;
 
     @Override
     public MessageContainer sendMessage(final User destination, final String message) {
@@ -53,9 +68,9 @@ public class ChatController implements ChatFunctionalities {
     }
 
     @Override
-    public void sendFile(final User destination, final File file) {
+    public void sendFile(final List<User> destinations, final File file) {
         try {
-            serverServices.checkSendFile(destination, file);
+            serverServices.checkSendFile(destinations, file);
         } catch (IOException e) {
             logger.error(e.getMessage());
         }
@@ -83,6 +98,7 @@ public class ChatController implements ChatFunctionalities {
 
     @Override
     public void removeUser(final User user) {
+        if (isCallPeer(user)) stopCall();
         chatView.removeUser(user);
     }
 
@@ -93,49 +109,80 @@ public class ChatController implements ChatFunctionalities {
 
     @Override
     public void requestFile(User source, long fileId, String absolutePath) {
-        try {
-            toSaveFilePaths.put(fileId, absolutePath);
-            serverServices.requestFile(source, fileId);
+        //A file already downloaded is saved again without requesting it from the server. The cache may read it from
+        //the disk, all of this is done outside the JavaFX Thread like the downloads.
+        Thread t = new Thread(() -> {
+            final CachedContent<FileDescriptor> cached = contentCache.getFile(source, fileId);
+            if (cached != null) {
+                saveFile(absolutePath, cached.getChunks());
+                return;
+            }
+            try {
+                toSaveFilePaths.put(serverServices.requestFile(source, fileId), absolutePath);
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+        });
+        t.start();
+    }
+
+    @Override
+    public void receiveFile(long correlationId, User source, FileDescriptor fileDescriptor, ChunkAssembler chunks) {
+        logger.info("File Received : " + fileDescriptor);
+        contentCache.putFile(source, fileDescriptor, chunks);
+        final String path = toSaveFilePaths.remove(correlationId);
+        if (path == null) return;
+        saveFile(path, chunks);
+    }
+
+    private void saveFile(String path, ChunkAssembler chunks) {
+        try (FileOutputStream os = new FileOutputStream(new File(path))) {
+            chunks.writeTo(os);
         } catch (IOException e) {
-            logger.error(e.getMessage());
+            logger.error(e);
         }
     }
 
     @Override
-    public void receiveFile(FileDescriptor fileDescriptor, List<FileContent> list) {
-        logger.info("File Received : " + fileDescriptor);
-        Collections.sort(list);
+    public void cancelTransfers() {
         try {
-            final File file = new File(toSaveFilePaths.get(fileDescriptor.getFileId()));
-            final FileOutputStream os = new FileOutputStream(file);
-            for (FileContent fc: list) {
-                os.write(fc.getData());
-            }
-            os.close();
+            serverServices.cancelTransfers();
+            toSaveFilePaths.clear();
         } catch (IOException e) {
-            logger.error(e);
+            logger.error(e.getMessage());
         }
     }
 
     @Override
-    public void startRecording() {
-        voiceRecorder.captureAudio();
+    public void startRecording(User destination) {
+        voiceRecorder.captureAudio(destination);
     }
 
     @Override
-    public void stopRecording(User destination) {
-        voiceRecorder.endRecording(destination);
+    public void stopRecording() {
+        voiceRecorder.endRecording();
     }
 
     @Override
-    public void sendAudio(User destination, byte[] audio) {
+    public long startAudio(User destination, AudioCodecType codecType, int sampleRate) {
         try {
-            serverServices.checkSendAudio(destination, audio);
+            return serverServices.checkSendAudio(destination, codecType, sampleRate);
         } catch (IOException e) {
             logger.error(e.getMessage());
+            return -1;
         }
     }
 
+    @Override
+    public void sendAudioChunk(long correlationId, byte[] data) {
+        serverServices.sendAudioChunk(correlationId, data);
+    }
+
+    @Override
+    public void endAudio(long correlationId) {
+        serverServices.endAudio(correlationId);
+    }
+
     @Override
     public void audioSent(MessageContainer message) {
         chatView.audioSent(message);
@@ -143,25 +190,32 @@ public class ChatController implements ChatFunctionalities {
 
     @Override
     public void requestAudio(User source, long audioId) {
-        try {
-            serverServices.requestAudio(source, audioId);
-        } catch (IOException e) {
-            logger.error(e.getMessage());
-        }
+        //An audio already downloaded is replayed without requesting it from the server, once read from the cache
+        //outside the JavaFX Thread.
+        Thread t = new Thread(() -> {
+            final CachedContent<AudioDescriptor> cached = contentCache.getAudio(source, audioId);
+            if (cached != null) {
+                voicePlayback.playAudio(cached.getDescriptor(), cached.getChunks());
+                return;
+            }
+            try {
+                serverServices.requestAudio(source, audioId);
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+        });
+        t.start();
     }
 
     @Override
-    public void receiveAudio(AudioDescriptor descriptor, List<AudioContent> list) {
-        logger.info("Audio Received : " + descriptor);
-        Collections.sort(list);
-        final byte[] audio = new byte[AudioContent.MAX_BYTE_SIZE*(list.size()-1)
-                + list.get(list.size()-1).getData().length];
-        byte[] temps;
-        for (int i = 0; i < list.size(); i++) {
-            temps = list.get(i).getData();
-            System.arraycopy(temps, 0, audio, i * AudioContent.MAX_BYTE_SIZE, temps.length);
-        }
-        this.playAudio(audio);
+    public void receiveAudio(AudioDescriptor descriptor, ChunkAssembler chunks) {
+        logger.info("Receiving audio : " + descriptor);
+        voicePlayback.playAudio(descriptor, chunks);
+    }
+
+    @Override
+    public void audioReceived(User source, AudioDescriptor descriptor, ChunkAssembler chunks) {
+        contentCache.putAudio(source, descriptor, chunks);
     }
 
     @Override
@@ -180,6 +234,7 @@ public class ChatController implements ChatFunctionalities {
             Stage stage = new Stage();
             stage.setMaximized(true);
             stage.setOnCloseRequest(event -> {
+                screenView.clearScreen();
                 Thread t = new Thread(() -> {
                     try {
                         serverServices.cancelControl(destination);
@@ -226,7 +281,7 @@ public class ChatController implements ChatFunctionalities {
 
     @Override
     public void sendFrame(User destination, Frame frame) {
-        logger.info("Sending frame to : " + destination);
+        logger.debug("Sending frame to : " + destination);
         try {
             serverServices.sendFrame(destination, frame);
         } catch (IOException e) {
@@ -238,4 +293,171 @@ public class ChatController implements ChatFunctionalities {
     public void provokeEvent(Event event) {
         screenLiveStream.provokeEvent(event);
     }
+
+    @Override
+    public void frameAcknowledged(FrameAck frameAck) {
+        screenLiveStream.frameAcknowledged(frameAck);
+    }
+
+    @Override
+    public void call(User destination) {
+        if (destination == null || callPeer != null || room != null) return;
+        logger.info("Calling : " + destination);
+        callPeer = destination;
+        try {
+            serverServices.requestCall(destination, getCallInformation());
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+            callPeer = null;
+        }
+    }
+
+    @Override
+    public void callRequested(User source, CallInformation callInformation) {
+        //Only one call at a time, the others are declined.
+        if (callPeer != null || room != null) {
+            try {
+                serverServices.endCall(source);
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+            return;
+        }
+        logger.info("Call received from : " + source);
+        callPeer = source;
+        incomingCall = callInformation;
+        chatView.callRequested(source);
+    }
+
+    @Override
+    public void acceptCall(User source) {
+        final CallInformation callInformation = incomingCall;
+        if (!isCallPeer(source) || callInformation == null) return;
+        incomingCall = null;
+        try {
+            serverServices.acceptCall(source, getCallInformation());
+            startCall(source, callInformation);
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+            stopCall();
+        }
+    }
+
+    @Override
+    public void callAccepted(User source, CallInformation callInformation) {
+        if (isCallPeer(source)) startCall(source, callInformation);
+    }
+
+    @Override
+    public void hangUp() {
+        final User peer = callPeer;
+        if (peer == null) return;
+        stopCall();
+        try {
+            serverServices.endCall(peer);
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    @Override
+    public void callEnded(User source) {
+        if (isCallPeer(source)) stopCall();
+    }
+
+    @Override
+    public void sendVoiceFrame(VoiceFrame frame) {
+        final User peer = callPeer;
+        try {
+            if (room != null) {
+                serverServices.sendRoomVoiceFrame(frame);
+            } else if (peer != null) {
+                serverServices.sendVoiceFrame(peer, frame);
+            }
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    @Override
+    public void receiveVoiceFrame(User source, VoiceFrame frame) {
+        if (isCallPeer(source)) voicePlayback.playVoiceFrame(frame);
+    }
+
+    @Override
+    public void joinRoom(String name) {
+        if (name == null || name.trim().isEmpty() || callPeer != null) return;
+        logger.info("Joining room : " + name);
+        try {
+            serverServices.joinRoom(name.trim(), Utils.getVoiceCodecType());
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    @Override
+    public void roomJoined(RoomInformation roomInformation) {
+        if (room != null) stopRoom();
+        logger.info("Room joined : " + roomInformation);
+        room = roomInformation.getName();
+        //The server mixes the room at its own sample rate, with the codec of this client.
+        final CallInformation callInformation = CallInformation.newInstance(
+                roomInformation.getCodecType(),
+                roomInformation.getSampleRate());
+        voicePlayback.startCall(callInformation);
+        voiceRecorder.captureCall(callInformation);
+        chatView.roomJoined(roomInformation.getName());
+    }
+
+    @Override
+    public void leaveRoom() {
+        if (room == null) return;
+        stopRoom();
+        try {
+            serverServices.leaveRoom();
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    @Override
+    public void receiveRoomVoiceFrame(VoiceFrame frame) {
+        if (room != null) voicePlayback.playVoiceFrame(frame);
+    }
+
+    private void stopRoom() {
+        logger.info("Room left : " + room);
+        room = null;
+        voiceRecorder.endCall();
+        voicePlayback.endCall();
+        chatView.roomLeft();
+    }
+
+    private void startCall(User peer, CallInformation callInformation) {
+        logger.info("Call started with : " + peer);
+        voicePlayback.startCall(callInformation);
+        voiceRecorder.captureCall(getCallInformation());
+        chatView.callStarted(peer);
+    }
+
+    private void stopCall() {
+        logger.info("Call ended with : " + callPeer);
+        callPeer = null;
+        incomingCall = null;
+        voiceRecorder.endCall();
+        voicePlayback.endCall();
+        chatView.callEnded();
+    }
+
+    private boolean isCallPeer(User user) {
+        final User peer = callPeer;
+        return peer != null && user != null && peer.getId().equals(user.getId());
+    }
+
+    /**
+     * @return The format of the voice frames sent by this client during a call.
+     */
+    private static CallInformation getCallInformation() {
+        return CallInformation.newInstance(Utils.getVoiceCodecType(), Utils.getVoiceSampleRate());
+    }
 }
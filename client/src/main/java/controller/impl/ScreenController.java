@@ -3,6 +3,7 @@ package controller.impl;
 import com.google.inject.Inject;
 import controller.ScreenFunctionalities;
 import model.Frame;
+import model.FrameAck;
 import model.MouseEvent;
 import model.User;
 import network.ServerServices;
@@ -27,6 +28,15 @@ public class ScreenController implements ScreenFunctionalities {
         screenView.updateScreen(frame);
     }
 
+    @Override
+    public void streamEnded(User source) {
+        //END_CONTROL also stops the own stream of the user, only the one viewed closes the screen.
+        final User viewed = this.source;
+        if (source == null || viewed == null || !source.getId().equals(viewed.getId())) return;
+        this.source = null;
+        screenView.closeScreen();
+    }
+
     @Override
     public void sendEvent(MouseEvent event) {
         try {
@@ -36,4 +46,13 @@ public class ScreenController implements ScreenFunctionalities {
         }
     }
 
+    @Override
+    public void acknowledgeFrame(long sequenceNumber) {
+        try {
+            serverServices.acknowledgeFrame(source, FrameAck.newInstance(sequenceNumber));
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
 }
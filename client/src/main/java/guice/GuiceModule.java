@@ -8,13 +8,21 @@ import controller.impl.ChatController;
 import controller.impl.LoginController;
 import controller.impl.ScreenController;
 import network.InputStreamReader;
+import network.OutboundScheduler;
 import network.ServerServices;
 import network.impl.InputStreamReaderImpl;
+import network.impl.OutboundSchedulerImpl;
 import network.impl.ServerServicesImpl;
+import util.cache.ContentCache;
+import util.cache.impl.ContentCacheImpl;
 import util.image.ScreenLiveStream;
 import util.image.impl.ScreenLiveStreamImpl;
+import util.voice.AudioSink;
+import util.voice.AudioSource;
 import util.voice.VoicePlayback;
 import util.voice.VoiceRecorder;
+import util.voice.impl.LineAudioSink;
+import util.voice.impl.LineAudioSource;
 import util.voice.impl.VoicePlaybackImpl;
 import util.voice.impl.VoiceRecorderImpl;
 import view.ChatView;
@@ -38,10 +46,14 @@ public class GuiceModule extends AbstractModule {
 
         bind(InputStreamReader.class).to(InputStreamReaderImpl.class).asEagerSingleton();
         bind(ServerServices.class).to(ServerServicesImpl.class).asEagerSingleton();
+        bind(OutboundScheduler.class).to(OutboundSchedulerImpl.class);
 
         bind(VoiceRecorder.class).to(VoiceRecorderImpl.class);
-        bind(VoicePlayback.class).to(VoicePlaybackImpl.class);
+        bind(VoicePlayback.class).to(VoicePlaybackImpl.class).asEagerSingleton();
+        bind(AudioSource.class).to(LineAudioSource.class);
+        bind(AudioSink.class).to(LineAudioSink.class);
 
         bind(ScreenLiveStream.class).to(ScreenLiveStreamImpl.class);
+        bind(ContentCache.class).to(ContentCacheImpl.class).asEagerSingleton();
     }
 }
@@ -1,15 +1,17 @@
 package model;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class BasePojo implements Serializable {
 
     private static final long serialVersionUID = -8671841846544199710L;
 
-    private static long count = 0;
+    //The ids are also the correlation ids of the requests, which are built by many Threads at once.
+    private static final AtomicLong count = new AtomicLong();
 
     protected BasePojo() {
-        this.id = ++count;
+        this.id = count.incrementAndGet();
     }
 
     private Long id;
@@ -0,0 +1,37 @@
+package model;
+
+import model.enums.AudioCodecType;
+
+public class CallInformation implements Content {
+
+    private static final long serialVersionUID = 3316846011378929241L;
+
+    //Format of the voice frames sent by the user announcing it.
+    private AudioCodecType codecType;
+    private int sampleRate;
+
+    public static CallInformation newInstance(AudioCodecType codecType, int sampleRate) {
+        return new CallInformation(codecType, sampleRate);
+    }
+
+    private CallInformation(AudioCodecType codecType, int sampleRate) {
+        this.codecType = codecType;
+        this.sampleRate = sampleRate;
+    }
+
+    public AudioCodecType getCodecType() {
+        return codecType;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public String toString() {
+        return "CallInformation{" +
+                "codecType=" + codecType +
+                ", sampleRate=" + sampleRate +
+                '}';
+    }
+}
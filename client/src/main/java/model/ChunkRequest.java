@@ -0,0 +1,34 @@
+package model;
+
+public class ChunkRequest implements Content {
+
+    private static final long serialVersionUID = -4427396655176370148L;
+
+    private final long transferId;
+    private final long[] chunkNumbers;
+
+    public static ChunkRequest newInstance(long transferId, long[] chunkNumbers) {
+        return new ChunkRequest(transferId, chunkNumbers);
+    }
+
+    private ChunkRequest(long transferId, long[] chunkNumbers) {
+        this.transferId = transferId;
+        this.chunkNumbers = chunkNumbers;
+    }
+
+    public long getTransferId() {
+        return transferId;
+    }
+
+    public long[] getChunkNumbers() {
+        return chunkNumbers;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkRequest{" +
+                "transferId=" + transferId +
+                ", chunks=" + chunkNumbers.length +
+                '}';
+    }
+}
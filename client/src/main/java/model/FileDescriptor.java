@@ -1,20 +1,31 @@
 package model;
 
+import java.util.List;
+
 public class FileDescriptor extends FileBasicInformation {
 
     private static final long serialVersionUID = -7809127402086776713L;
 
     private long chunksTotalNumber;
     private String fileName;
+    //Users receiving the file, when it is shared with several of them through a single upload.
+    private List<User> recipients;
+    //Digest of the whole file, known by the server once the upload has been verified.
+    private byte[] digest;
 
     public static FileDescriptor newInstance(long chunksTotalNumber, String fileName) {
-        return new FileDescriptor(chunksTotalNumber, fileName);
+        return new FileDescriptor(chunksTotalNumber, fileName, null);
+    }
+
+    public static FileDescriptor newInstance(long chunksTotalNumber, String fileName, List<User> recipients) {
+        return new FileDescriptor(chunksTotalNumber, fileName, recipients);
     }
 
-    private FileDescriptor(long chunksTotalNumber, String fileName) {
+    private FileDescriptor(long chunksTotalNumber, String fileName, List<User> recipients) {
         super();
         this.chunksTotalNumber = chunksTotalNumber;
         this.fileName = fileName;
+        this.recipients = recipients;
     }
 
     public long getChunksTotalNumber() {
@@ -33,12 +44,29 @@ public class FileDescriptor extends FileBasicInformation {
         this.fileName = fileName;
     }
 
+    public List<User> getRecipients() {
+        return recipients;
+    }
+
+    public void setRecipients(List<User> recipients) {
+        this.recipients = recipients;
+    }
+
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    public void setDigest(byte[] digest) {
+        this.digest = digest;
+    }
+
     @Override
     public String toString() {
         return "FileDescriptor{" +
                 "fileId=" + getFileId() +
                 ", chunksTotalNumber=" + chunksTotalNumber +
                 ", fileName='" + fileName + '\'' +
+                ", recipients=" + recipients +
                 '}';
     }
 }
@@ -0,0 +1,35 @@
+package model;
+
+public class FileDigest implements Content {
+
+    private static final long serialVersionUID = 3208745217743508316L;
+
+    public static final transient String ALGORITHM = "SHA-256";
+
+    private final long fileId;
+    private final byte[] digest;
+
+    public static FileDigest newInstance(long fileId, byte[] digest) {
+        return new FileDigest(fileId, digest);
+    }
+
+    private FileDigest(long fileId, byte[] digest) {
+        this.fileId = fileId;
+        this.digest = digest;
+    }
+
+    public long getFileId() {
+        return fileId;
+    }
+
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    @Override
+    public String toString() {
+        return "FileDigest{" +
+                "fileId=" + fileId +
+                '}';
+    }
+}
@@ -1,4 +1,12 @@
 package model;
 
+import model.enums.FrameEncoding;
+
+import java.util.List;
+
 public interface Frame extends Content {
+
+    long getSequenceNumber();
+    FrameEncoding getEncoding();
+    List<Tile> getTiles();
 }
@@ -1,20 +1,66 @@
 package model;
 
+import model.enums.FrameEncoding;
+
+import java.util.List;
+
+/**
+ * Whole image of the screen, as all its tiles.
+ */
 public class IFrame implements Frame {
 
     private static final long serialVersionUID = -3327912380543047507L;
 
-    private byte[] image;
+    private long sequenceNumber;
+    private FrameEncoding encoding;
+    private int width;
+    private int height;
+    private List<Tile> tiles;
+
+    public static IFrame newInstance(long sequenceNumber, FrameEncoding encoding, int width, int height,
+                                     List<Tile> tiles) {
+        return new IFrame(sequenceNumber, encoding, width, height, tiles);
+    }
+
+    private IFrame(long sequenceNumber, FrameEncoding encoding, int width, int height, List<Tile> tiles) {
+        this.sequenceNumber = sequenceNumber;
+        this.encoding = encoding;
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+    }
+
+    @Override
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    @Override
+    public FrameEncoding getEncoding() {
+        return encoding;
+    }
+
+    public int getWidth() {
+        return width;
+    }
 
-    public static IFrame newInstance(byte[] image) {
-        return new IFrame(image);
+    public int getHeight() {
+        return height;
     }
 
-    private IFrame(byte[] image) {
-        this.image = image;
+    @Override
+    public List<Tile> getTiles() {
+        return tiles;
     }
 
-    public byte[] getImage() {
-        return image;
+    @Override
+    public String toString() {
+        return "IFrame{" +
+                "sequenceNumber=" + sequenceNumber +
+                ", encoding=" + encoding +
+                ", width=" + width +
+                ", height=" + height +
+                ", tiles=" + tiles.size() +
+                '}';
     }
 }
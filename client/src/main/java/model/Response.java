@@ -9,15 +9,22 @@ public class Response extends BasePojo {
     private final ResponseType type;
     private Content content;
     private final User source;
+    //Correlation id of the request this response belongs to, 0 if it was not triggered by a request.
+    private final long correlationId;
 
     public static Response newInstance(ResponseType type, Content content, User source) {
-        return new Response(type, content, source);
+        return new Response(type, content, source, 0);
     }
 
-    private Response(ResponseType type, Content content, User source) {
+    public static Response newInstance(ResponseType type, Content content, User source, long correlationId) {
+        return new Response(type, content, source, correlationId);
+    }
+
+    private Response(ResponseType type, Content content, User source, long correlationId) {
         this.type = type;
         this.content = content;
         this.source = source;
+        this.correlationId = correlationId;
     }
 
     public ResponseType getType() {
@@ -36,12 +43,17 @@ public class Response extends BasePojo {
         return source;
     }
 
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
     @Override
     public String toString() {
         return "Response{" +
                 "type=" + type +
                 ", content=" + content +
                 ", source=" + source +
+                ", correlationId=" + correlationId +
                 '}';
     }
 }
@@ -0,0 +1,44 @@
+package model;
+
+import model.enums.AudioCodecType;
+
+public class RoomInformation implements Content {
+
+    private static final long serialVersionUID = -4207163937524770183L;
+
+    private String name;
+    //Codec of the voice frames exchanged with the room, and sample rate imposed by the room once joined.
+    private AudioCodecType codecType;
+    private int sampleRate;
+
+    public static RoomInformation newInstance(String name, AudioCodecType codecType, int sampleRate) {
+        return new RoomInformation(name, codecType, sampleRate);
+    }
+
+    private RoomInformation(String name, AudioCodecType codecType, int sampleRate) {
+        this.name = name;
+        this.codecType = codecType;
+        this.sampleRate = sampleRate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AudioCodecType getCodecType() {
+        return codecType;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public String toString() {
+        return "RoomInformation{" +
+                "name='" + name + '\'' +
+                ", codecType=" + codecType +
+                ", sampleRate=" + sampleRate +
+                '}';
+    }
+}
@@ -0,0 +1,35 @@
+package model;
+
+public class VoiceFrame implements Content {
+
+    private static final long serialVersionUID = -2093541637786185224L;
+    //Duration of the audio carried by a frame, in milliseconds.
+    public static final transient int DURATION = 20;
+
+    private long sequenceNumber;
+    private byte[] data;
+
+    public static VoiceFrame newInstance(long sequenceNumber, byte[] data) {
+        return new VoiceFrame(sequenceNumber, data);
+    }
+
+    private VoiceFrame(long sequenceNumber, byte[] data) {
+        this.sequenceNumber = sequenceNumber;
+        this.data = data;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "VoiceFrame{" +
+                "sequenceNumber=" + sequenceNumber +
+                '}';
+    }
+}
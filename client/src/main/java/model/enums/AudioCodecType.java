@@ -0,0 +1,12 @@
+package model.enums;
+
+import java.io.Serializable;
+
+public enum AudioCodecType implements Serializable {
+    //Uncompressed 16 bits samples.
+    PCM,
+    //G.711 mu-law, 8 bits per sample.
+    MU_LAW,
+    //IMA ADPCM, 4 bits per sample.
+    IMA_ADPCM
+}
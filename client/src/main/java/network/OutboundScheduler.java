@@ -0,0 +1,14 @@
+package network;
+
+import model.enums.TrafficClass;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+public interface OutboundScheduler extends Runnable {
+
+    void open(ObjectOutputStream writer);
+    boolean schedule(TrafficClass trafficClass, Serializable object) throws IOException;
+    void close();
+}
@@ -1,9 +1,11 @@
 package network;
 
 import model.*;
+import model.enums.AudioCodecType;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 public interface ServerServices {
 
@@ -11,20 +13,38 @@ public interface ServerServices {
     void disconnect();
     void sendMessage(MessageContainer message) throws IOException ;
     //File methods
-    void checkSendFile(User destination, File file) throws IOException ;
-    void sendFile(User destination, long fileId) throws IOException ;
-    void requestFile(User source, long fileId) throws IOException ;
-    void prepareReceiveFile(FileDescriptor fileDescriptor, User source) throws IOException;
-    void receiveFile(User source, FileContent fileContent);
+    void checkSendFile(List<User> destinations, File file) throws IOException ;
+    void sendFile(long correlationId, long fileId) throws IOException ;
+    void resendFileChunks(long correlationId, ChunkRequest chunkRequest) throws IOException ;
+    long requestFile(User source, long fileId) throws IOException ;
+    void prepareReceiveFile(long correlationId, FileDescriptor fileDescriptor, User source) throws IOException;
+    void receiveFile(long correlationId, FileContent fileContent);
+    void checkFileDigest(long correlationId, FileDigest fileDigest) throws IOException;
     //Audio methods
-    void checkSendAudio(User destination, byte[] audio) throws IOException ;
-    void sendAudio(User destination, long audioId) throws IOException ;
-    void requestAudio(User source, long audioId) throws IOException ;
-    void prepareReceiveAudio(AudioDescriptor audioDescriptor, User source) throws IOException;
-    void receiveAudio(User source, AudioContent audioContent);
+    long checkSendAudio(User destination, AudioCodecType codecType, int sampleRate) throws IOException ;
+    void sendAudioChunk(long correlationId, byte[] data);
+    void endAudio(long correlationId);
+    void sendAudio(long correlationId, User destination, long audioId) throws IOException ;
+    long requestAudio(User source, long audioId) throws IOException ;
+    void prepareReceiveAudio(long correlationId, AudioDescriptor audioDescriptor, User source) throws IOException;
+    void receiveAudio(long correlationId, AudioContent audioContent);
+    void endReceiveAudio(long correlationId, AudioDescriptor audioDescriptor);
+    //Cancellation methods, transfers are identified by their correlation id.
+    void cancelTransfer(long correlationId) throws IOException;
+    void cancelTransfers() throws IOException;
 
     void requestControl(User destination) throws IOException;
     void cancelControl(User destination) throws IOException;
     void sendFrame(User destination, Frame frame) throws IOException;
     void sendEvent(User destination, Event event) throws IOException;
+    void acknowledgeFrame(User destination, FrameAck frameAck) throws IOException;
+    //Call methods
+    void requestCall(User destination, CallInformation callInformation) throws IOException;
+    void acceptCall(User source, CallInformation callInformation) throws IOException;
+    void endCall(User peer) throws IOException;
+    void sendVoiceFrame(User destination, VoiceFrame frame) throws IOException;
+    //Voice room methods
+    void joinRoom(String name, AudioCodecType codecType) throws IOException;
+    void leaveRoom() throws IOException;
+    void sendRoomVoiceFrame(VoiceFrame frame) throws IOException;
 }
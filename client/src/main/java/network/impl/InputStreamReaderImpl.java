@@ -48,9 +48,14 @@ public class InputStreamReaderImpl implements InputStreamReader {
         try {
             while (isRunning) {
                 final Response response = (Response)is.readObject();
+                //The responses are handled in their arrival order (a digest follows the chunks it covers), the
+                //listeners hand the transfers, the completed downloads and the disk accesses over to other Threads.
                 for (final InputStreamListener listener : listeners) {
-                    Thread t = new Thread(() -> listener.handleResponses(response));
-                    t.start();
+                    try {
+                        listener.handleResponses(response);
+                    } catch (RuntimeException e) {
+                        logger.error("Error while handling : " + response, e);
+                    }
                 }
             }
         } catch (SocketException | EOFException e) {
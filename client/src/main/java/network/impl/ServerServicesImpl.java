@@ -8,18 +8,29 @@ import model.*;
 import model.Event;
 import model.FileDescriptor;
 import model.Frame;
+import model.enums.AudioCodecType;
 import model.enums.RequestType;
 import network.InputStreamListener;
 import network.InputStreamReader;
+import network.OutboundScheduler;
 import network.ServerServices;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import util.ChunkAssembler;
 
 import java.awt.*;
 import java.io.*;
 import java.net.Socket;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class ServerServicesImpl implements ServerServices, InputStreamListener {
 
@@ -28,33 +39,54 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
     @Inject private ChatFunctionalities chatController;
     @Inject private ScreenFunctionalities screenController;
     @Inject private InputStreamReader isReader;
+    @Inject private OutboundScheduler scheduler;
 
     private Socket connection = null;
     private ObjectOutputStream writer = null;
 
-    //Files sent/to send.
-    private Map<Long, File> files;
+    //Every transfer is identified by the correlation id of the request that started it, so that several of them
+    //can run at the same time with the same user.
+
+    //Files sent/to send, removed once sent or cancelled.
+    private Map<Long, File> files = new ConcurrentHashMap<>();
+    private Map<Long, byte[]> fileDigests = new ConcurrentHashMap<>();
 
     //Files received/to receive.
-    private Map<Long, Map<Long, List<FileContent>>> fileContents = new HashMap<>();
-    private Map<Long, Map<Long, FileDescriptor>> fileDescriptors = new HashMap<>();
+    private Map<Long, ChunkAssembler> fileContents = new ConcurrentHashMap<>();
+    private Map<Long, FileDescriptor> fileDescriptors = new ConcurrentHashMap<>();
 
-    //Audios sent/to send.
-    private Map<Long, byte[]> audios;
+    //Audios sent/to send, with their chunks waiting to be sent while they are recorded.
+    private Map<Long, BlockingQueue<byte[]>> audios = new ConcurrentHashMap<>();
+    //Marks the end of a recording in the queue of its chunks.
+    private static final byte[] END_OF_AUDIO = new byte[0];
 
     //Audios received/to receive.
-    private Map<Long, Map<Long, List<AudioContent>>> audioContents = new HashMap<>();
-    private Map<Long, Map<Long, AudioDescriptor>> audioDescriptors = new HashMap<>();
+    private Map<Long, ChunkAssembler> audioContents = new ConcurrentHashMap<>();
+    private Map<Long, AudioDescriptor> audioDescriptors = new ConcurrentHashMap<>();
+
+    //Users the downloads are received from.
+    private Map<Long, User> sources = new ConcurrentHashMap<>();
+    //Downloads completed, handed over to the controller one after the other outside the Thread reading the responses.
+    private final ExecutorService completedDownloads = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private Request buildRequest(final RequestType type, Content content, final User destination) {
         return Request.newInstance(type, content, destination);
     }
 
-    private synchronized void sendRequest(@NotNull final Request request) throws IOException {
+    private Request buildRequest(final RequestType type, Content content, final User destination,
+                                 final long correlationId) {
+        return Request.newInstance(type, content, destination, correlationId);
+    }
+
+    private void sendRequest(@NotNull final Request request) throws IOException {
         if (writer != null) {
             logger.info("Request : " + request);
-            writer.writeObject(request);
-            writer.flush();
+            //The request is written by the scheduler's Thread, according to its traffic class.
+            scheduler.schedule(request.getType().getTrafficClass(), request);
         }
     }
 
@@ -72,6 +104,8 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
                 break;
             }
             case REMOVE_USER: {
+                //Nothing more will be received from this user.
+                dropDownloads(response.getSource());
                 chatController.removeUser(response.getSource());
                 break;
             }
@@ -84,7 +118,10 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
             }
             case PREPARE_RECEIVE_FILE: {
                 try {
-                    prepareReceiveFile((FileDescriptor) response.getContent(), response.getSource());
+                    prepareReceiveFile(
+                            response.getCorrelationId(),
+                            (FileDescriptor) response.getContent(),
+                            response.getSource());
                 } catch (IOException e) {
                     logger.error(e);
                 }
@@ -98,12 +135,23 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
                 break;
             }
             case FILE_CHUNK: {
-                receiveFile(response.getSource(), (FileContent) response.getContent());
+                receiveFile(response.getCorrelationId(), (FileContent) response.getContent());
+                break;
+            }
+            case FILE_DIGEST: {
+                try {
+                    checkFileDigest(response.getCorrelationId(), (FileDigest) response.getContent());
+                } catch (IOException e) {
+                    logger.error(e);
+                }
                 break;
             }
             case PREPARE_RECEIVE_AUDIO: {
                 try {
-                    prepareReceiveAudio((AudioDescriptor) response.getContent(), response.getSource());
+                    prepareReceiveAudio(
+                            response.getCorrelationId(),
+                            (AudioDescriptor) response.getContent(),
+                            response.getSource());
                 } catch (IOException e) {
                     logger.error(e);
                 }
@@ -117,7 +165,11 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
                 break;
             }
             case AUDIO_CHUNK: {
-                receiveAudio(response.getSource(), (AudioContent) response.getContent());
+                receiveAudio(response.getCorrelationId(), (AudioContent) response.getContent());
+                break;
+            }
+            case AUDIO_END: {
+                endReceiveAudio(response.getCorrelationId(), (AudioDescriptor) response.getContent());
                 break;
             }
             case MESSAGE_SENT: {
@@ -125,14 +177,32 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
                 break;
             }
             case CAN_SEND_FILE: {
-                try {
-                    sendFile(response.getSource(), ((FileBasicInformation)response.getContent()).getFileId());
-                } catch (IOException e) {
-                    logger.error(e);
-                }
+                //The upload runs in its own Thread, the responses keep being handled meanwhile.
+                final Thread t = new Thread(() -> {
+                    try {
+                        sendFile(
+                                response.getCorrelationId(),
+                                ((FileBasicInformation)response.getContent()).getFileId());
+                    } catch (IOException e) {
+                        logger.error(e);
+                    }
+                });
+                t.start();
+                break;
+            }
+            case RESEND_FILE_CHUNKS: {
+                final Thread t = new Thread(() -> {
+                    try {
+                        resendFileChunks(response.getCorrelationId(), (ChunkRequest)response.getContent());
+                    } catch (IOException e) {
+                        logger.error(e);
+                    }
+                });
+                t.start();
                 break;
             }
             case FILE_SENT: {
+                dropUpload(response.getCorrelationId());
                 chatController.fileSent(
                         MessageContainer.newInstance(
                             response.getSource(),
@@ -140,11 +210,17 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
                 break;
             }
             case CAN_SEND_AUDIO: {
-                try {
-                    sendAudio(response.getSource(), ((AudioBasicInformation)response.getContent()).getAudioId());
-                } catch (IOException e) {
-                    logger.error(e);
-                }
+                final Thread t = new Thread(() -> {
+                    try {
+                        sendAudio(
+                                response.getCorrelationId(),
+                                response.getSource(),
+                                ((AudioBasicInformation)response.getContent()).getAudioId());
+                    } catch (IOException e) {
+                        logger.error(e);
+                    }
+                });
+                t.start();
                 break;
             }
             case AUDIO_SENT: {
@@ -167,8 +243,53 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
                 chatController.provokeEvent((Event)response.getContent());
                 break;
             }
+            case FRAME_ACKNOWLEDGED: {
+                chatController.frameAcknowledged((FrameAck)response.getContent());
+                break;
+            }
             case END_CONTROL: {
                 chatController.stopGivingControl();
+                screenController.streamEnded(response.getSource());
+                break;
+            }
+            case CALL_REQUEST: {
+                chatController.callRequested(response.getSource(), (CallInformation)response.getContent());
+                break;
+            }
+            case CALL_ACCEPTED: {
+                chatController.callAccepted(response.getSource(), (CallInformation)response.getContent());
+                break;
+            }
+            case CALL_ENDED: {
+                chatController.callEnded(response.getSource());
+                break;
+            }
+            case VOICE_FRAME: {
+                chatController.receiveVoiceFrame(response.getSource(), (VoiceFrame)response.getContent());
+                break;
+            }
+            case ROOM_JOINED: {
+                chatController.roomJoined((RoomInformation)response.getContent());
+                break;
+            }
+            case ROOM_VOICE_FRAME: {
+                chatController.receiveRoomVoiceFrame((VoiceFrame)response.getContent());
+                break;
+            }
+            case WAITING_FOR_MEMORY: {
+                logger.info("Waiting for the server to have enough memory : " + response.getContent());
+                break;
+            }
+            case CORRUPTED_FILE: {
+                logger.error("File corrupted during the upload : " + response.getContent());
+                dropUpload(response.getCorrelationId());
+                break;
+            }
+            case TRANSFER_CANCELLED: {
+                logger.info("Transfer cancelled : " + response.getCorrelationId());
+                dropUpload(response.getCorrelationId());
+                audios.remove(response.getCorrelationId());
+                dropDownload(response.getCorrelationId());
                 break;
             }
             case INSUFFICIENT_MEMORY: {
@@ -200,6 +321,8 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
             return;
         }
         writer = new ObjectOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+        scheduler.open(writer);
+        new Thread(scheduler).start();
 
         //Initialize the InputStreamReader and let it run in another Thread.
         isReader.open(reader);
@@ -215,6 +338,8 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
     public void disconnect() {
         try {
             this.sendRequest(this.buildRequest(RequestType.DISCONNECT, null, null));
+            //Gives the scheduler a chance to write the pending requests before closing the socket.
+            scheduler.close();
             isReader.close();
             this.connection.close();
         } catch (IOException e) {
@@ -228,143 +353,347 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
     }
 
     @Override
-    public void checkSendFile(User destination, File file) throws IOException  {
+    public void checkSendFile(List<User> destinations, File file) throws IOException  {
+        //An empty file is still sent as a single empty chunk.
+        //The file is uploaded once, the server then shares it with all the destinations.
         final FileDescriptor fileDescriptor = FileDescriptor.newInstance(
-                file.length()/FileContent.MAX_BYTE_SIZE + 1,
-                file.getName());
-        this.sendRequest(this.buildRequest(RequestType.PREPARE_SEND_FILE, fileDescriptor, destination));
-
-        if (this.files == null) this.files = new HashMap<>();
-        files.put(fileDescriptor.getFileId(), file);
+                Math.max(1, (file.length() + FileContent.MAX_BYTE_SIZE - 1)/FileContent.MAX_BYTE_SIZE),
+                file.getName(),
+                new ArrayList<>(destinations));
+        final Request request = this.buildRequest(RequestType.PREPARE_SEND_FILE, fileDescriptor, null);
+        files.put(request.getCorrelationId(), file);
+        this.sendRequest(request);
     }
 
     @Override
-    public void sendFile(User destination, long fileId) throws IOException  {
-        int read = 0, chunkNumber = 1;
-        final File file = files.get(fileId);
+    public void sendFile(long correlationId, long fileId) throws IOException  {
+        int read = 0, chunkNumber = 0;
+        final File file = files.get(correlationId);
 
         if (file == null) {
             logger.error("Unknown fileId received.");
             return;
         }
 
-        final FileInputStream fis = new FileInputStream(file);
-        while (read != -1 && !connection.isClosed()) {
-            byte[] bytes = new byte[FileContent.MAX_BYTE_SIZE];
-            read = fis.read(bytes, 0, FileContent.MAX_BYTE_SIZE);
-            if (read != -1) {
-                if (read != bytes.length) {
-                    bytes = Arrays.copyOf(bytes, read);
+        final MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(FileDigest.ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        //The digest of the whole file is computed while its chunks are sent.
+        try (FileInputStream fis = new FileInputStream(file)) {
+            while (read != -1 && !connection.isClosed() && files.containsKey(correlationId)) {
+                byte[] bytes = new byte[FileContent.MAX_BYTE_SIZE];
+                read = fis.read(bytes, 0, FileContent.MAX_BYTE_SIZE);
+                if (read != -1) {
+                    if (read != bytes.length) {
+                        bytes = Arrays.copyOf(bytes, read);
+                    }
+                    messageDigest.update(bytes);
+                    final FileContent fileContent = FileContent.newInstance(
+                            fileId,
+                            chunkNumber,
+                            bytes);
+                    this.sendRequest(this.buildRequest(RequestType.SEND_FILE, fileContent, null, correlationId));
+                    chunkNumber++;
                 }
-                final FileContent fileContent = FileContent.newInstance(
-                        fileId,
-                        chunkNumber,
-                        bytes);
-                this.sendRequest(this.buildRequest(RequestType.SEND_FILE, fileContent, destination));
-                chunkNumber++;
             }
         }
-        fis.close();
+        //The upload has been cancelled meanwhile.
+        if (!files.containsKey(correlationId)) return;
+
+        if (chunkNumber == 0) {
+            this.sendRequest(this.buildRequest(
+                    RequestType.SEND_FILE,
+                    FileContent.newInstance(fileId, chunkNumber, new byte[0]),
+                    null,
+                    correlationId));
+        }
+
+        final byte[] digest = messageDigest.digest();
+        fileDigests.put(correlationId, digest);
+        this.sendRequest(this.buildRequest(
+                RequestType.SEND_FILE_DIGEST,
+                FileDigest.newInstance(fileId, digest),
+                null,
+                correlationId));
     }
 
     @Override
-    public void requestFile(User source, long fileId) throws IOException  {
+    public void resendFileChunks(long correlationId, ChunkRequest chunkRequest) throws IOException {
+        final File file = files.get(correlationId);
+        final byte[] digest = fileDigests.get(correlationId);
+        if (file == null || digest == null) {
+            logger.error("Unknown fileId received.");
+            return;
+        }
+
+        //Only the chunks the server could not verify are read and sent again.
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for (long chunkNumber : chunkRequest.getChunkNumbers()) {
+                final long position = chunkNumber * FileContent.MAX_BYTE_SIZE;
+                final long length = Math.min(FileContent.MAX_BYTE_SIZE, raf.length() - position);
+                final byte[] bytes = new byte[(int)Math.max(0, length)];
+                raf.seek(position);
+                raf.readFully(bytes);
+                this.sendRequest(this.buildRequest(
+                        RequestType.SEND_FILE,
+                        FileContent.newInstance(chunkRequest.getTransferId(), chunkNumber, bytes),
+                        null,
+                        correlationId));
+            }
+        }
         this.sendRequest(this.buildRequest(
+                RequestType.SEND_FILE_DIGEST,
+                FileDigest.newInstance(chunkRequest.getTransferId(), digest),
+                null,
+                correlationId));
+    }
+
+    @Override
+    public long requestFile(User source, long fileId) throws IOException  {
+        final Request request = this.buildRequest(
                 RequestType.PREPARE_REQUEST_FILE,
                 FileBasicInformation.newInstance(fileId),
-                source));
+                source);
+        this.sendRequest(request);
+        return request.getCorrelationId();
     }
 
     @Override
-    public void prepareReceiveFile(FileDescriptor fileDescriptor, User source) throws IOException {
+    public void prepareReceiveFile(long correlationId, FileDescriptor fileDescriptor, User source) throws IOException {
         //TODO: Test if there's enough memory available before sending the response.
-        fileDescriptors.put(source.getId(), new HashMap<>());
-        fileDescriptors.get(source.getId()).put(fileDescriptor.getFileId(), fileDescriptor);
-        fileContents.put(source.getId(), new HashMap<>());
-        fileContents.get(source.getId()).put(fileDescriptor.getFileId(), new LinkedList<>());
+        sources.put(correlationId, source);
+        fileDescriptors.put(correlationId, fileDescriptor);
+        fileContents.put(
+                correlationId,
+                new ChunkAssembler(fileDescriptor.getChunksTotalNumber(), FileDigest.ALGORITHM));
         this.sendRequest(buildRequest(
                 RequestType.REQUEST_FILE,
                 FileBasicInformation.newInstance(fileDescriptor.getFileId()),
-                source));
+                source,
+                correlationId));
     }
 
     @Override
-    public void receiveFile(User source, FileContent fileContent) {
-        final List<FileContent> list = fileContents.get(source.getId()).get(fileContent.getFileId());
-        list.add(fileContent);
+    public void receiveFile(long correlationId, FileContent fileContent) {
+        if (!fileContent.isValid()) {
+            //The chunk will be requested again once the digest of the file is received.
+            logger.warn("Corrupted chunk dropped : " + fileContent);
+            return;
+        }
 
-        final FileDescriptor fileDescriptor = fileDescriptors.get(source.getId()).get(fileContent.getFileId());
-        if (list.size() == fileDescriptor.getChunksTotalNumber()) {
-            chatController.receiveFile(fileDescriptor, list);
+        final ChunkAssembler chunks = fileContents.get(correlationId);
+        final FileDescriptor fileDescriptor = fileDescriptors.get(correlationId);
+        if (chunks == null || fileDescriptor == null) {
+            //The download has been cancelled.
+            return;
+        }
+        if (!chunks.add(fileContent.getChunkNumber(), fileContent.getData())) {
+            logger.warn("Duplicate or unexpected chunk ignored : " + fileContent);
+            return;
+        }
+
+        if (chunks.isComplete()) {
+            final User source = sources.get(correlationId);
+            dropDownload(correlationId);
+            //The digest and the saving of the file take too long to be done by the Thread reading the responses.
+            completedDownloads.execute(() -> {
+                if (Arrays.equals(chunks.getDigest(), fileDescriptor.getDigest())) {
+                    chatController.receiveFile(correlationId, source, fileDescriptor, chunks);
+                } else {
+                    logger.error("Digest mismatch for : " + fileDescriptor);
+                }
+            });
         }
     }
 
     @Override
-    public void checkSendAudio(User destination, byte[] audio) throws IOException {
+    public void checkFileDigest(long correlationId, FileDigest fileDigest) throws IOException {
+        final ChunkAssembler chunks = fileContents.get(correlationId);
+        final User source = sources.get(correlationId);
+        if (chunks == null || source == null || chunks.isComplete()) return;
+
+        //The digest follows all the chunks sent by the server, the ones still missing were corrupted or lost.
+        this.sendRequest(buildRequest(
+                RequestType.REQUEST_FILE_CHUNKS,
+                ChunkRequest.newInstance(fileDigest.getFileId(), chunks.getMissing()),
+                source,
+                correlationId));
+    }
+
+    @Override
+    public long checkSendAudio(User destination, AudioCodecType codecType, int sampleRate) throws IOException {
+        //The audio is streamed while it is recorded, its length is only known once it ends.
         final AudioDescriptor audioDescriptor = AudioDescriptor.newInstance(
-                audio.length/AudioContent.MAX_BYTE_SIZE + 1);
-        this.sendRequest(this.buildRequest(RequestType.PREPARE_SEND_AUDIO, audioDescriptor, destination));
+                AudioDescriptor.UNKNOWN_CHUNKS_TOTAL_NUMBER,
+                codecType,
+                sampleRate);
+        //The recorder only sends the length of the silences.
+        audioDescriptor.setSilenceSuppressed(true);
+        final Request request = this.buildRequest(RequestType.PREPARE_SEND_AUDIO, audioDescriptor, destination);
+        audios.put(request.getCorrelationId(), new LinkedBlockingQueue<>());
+        this.sendRequest(request);
+        return request.getCorrelationId();
+    }
 
-        if (this.audios == null) this.audios = new HashMap<>();
-        audios.put(audioDescriptor.getAudioId(), audio);
+    @Override
+    public void sendAudioChunk(long correlationId, byte[] data) {
+        final BlockingQueue<byte[]> chunks = audios.get(correlationId);
+        if (chunks != null) chunks.add(data);
     }
 
     @Override
-    public void sendAudio(User destination, long audioId) throws IOException {
-        final byte[] audio = audios.get(audioId);
+    public void endAudio(long correlationId) {
+        final BlockingQueue<byte[]> chunks = audios.get(correlationId);
+        if (chunks != null) chunks.add(END_OF_AUDIO);
+    }
+
+    @Override
+    public void sendAudio(long correlationId, User destination, long audioId) throws IOException {
+        final BlockingQueue<byte[]> chunks = audios.get(correlationId);
 
-        if (audio == null) {
+        if (chunks == null) {
             logger.error("Unknown audioId received.");
             return;
         }
 
-        final long totalChunksNumber = audio.length/AudioContent.MAX_BYTE_SIZE + 1;
-        //Used during the last iteration to not create an array bigger than what is
-        //needed to store what is left of the audio.
-        long minus = 0;
-
-        for (int i = 0; i < totalChunksNumber && !connection.isClosed(); i++) {
-            long length = (i+1)*AudioContent.MAX_BYTE_SIZE;
-            if (length > audio.length) minus = length - audio.length;
-
-            byte[] bytes = Arrays.copyOfRange(audio,
-                    Math.toIntExact(i*AudioContent.MAX_BYTE_SIZE),
-                    Math.toIntExact(length - minus));
+        //The chunks recorded before the server accepted the audio are sent first, then the others as they come.
+        long chunkNumber = 0;
+        try {
+            while (!connection.isClosed() && audios.containsKey(correlationId)) {
+                final byte[] data = chunks.poll(1, TimeUnit.SECONDS);
+                if (data == null) continue;
+                if (data == END_OF_AUDIO) {
+                    audios.remove(correlationId);
+                    this.sendRequest(this.buildRequest(
+                            RequestType.SEND_AUDIO_END,
+                            AudioDescriptor.newInstance(audioId, chunkNumber),
+                            destination,
+                            correlationId));
+                    return;
+                }
 
-            final AudioContent audioContent = AudioContent.newInstance(audioId, i, bytes);
-            this.sendRequest(this.buildRequest(RequestType.SEND_AUDIO, audioContent, destination));
+                final AudioContent audioContent = AudioContent.newInstance(audioId, chunkNumber++, data);
+                this.sendRequest(this.buildRequest(RequestType.SEND_AUDIO, audioContent, destination, correlationId));
+            }
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while sending audio : " + e.getMessage());
         }
     }
 
     @Override
-    public void requestAudio(User source, long audioId) throws IOException {
-        this.sendRequest(this.buildRequest(
+    public long requestAudio(User source, long audioId) throws IOException {
+        final Request request = this.buildRequest(
                 RequestType.PREPARE_REQUEST_AUDIO,
                 AudioBasicInformation.newInstance(audioId),
-                source));
+                source);
+        this.sendRequest(request);
+        return request.getCorrelationId();
     }
 
     @Override
-    public void prepareReceiveAudio(AudioDescriptor audioDescriptor, User source) throws IOException {
+    public void prepareReceiveAudio(long correlationId, AudioDescriptor audioDescriptor, User source)
+            throws IOException {
         //TODO: Test if there's enough memory available before sending the response.
-        audioDescriptors.put(source.getId(), new HashMap<>());
-        audioDescriptors.get(source.getId()).put(audioDescriptor.getAudioId(), audioDescriptor);
-        audioContents.put(source.getId(), new HashMap<>());
-        audioContents.get(source.getId()).put(audioDescriptor.getAudioId(), new LinkedList<>());
+        final ChunkAssembler chunks = new ChunkAssembler(audioDescriptor.isStreamed()
+                ? ChunkAssembler.UNKNOWN_TOTAL
+                : audioDescriptor.getChunksTotalNumber());
+        sources.put(correlationId, source);
+        audioDescriptors.put(correlationId, audioDescriptor);
+        audioContents.put(correlationId, chunks);
+        //The audio is played while its chunks are received.
+        chatController.receiveAudio(audioDescriptor, chunks);
         this.sendRequest(buildRequest(
                 RequestType.REQUEST_AUDIO,
                 AudioBasicInformation.newInstance(audioDescriptor.getAudioId()),
-                source));
+                source,
+                correlationId));
+    }
+
+    @Override
+    public void receiveAudio(long correlationId, AudioContent audioContent) {
+        final ChunkAssembler chunks = audioContents.get(correlationId);
+        final AudioDescriptor audioDescriptor = audioDescriptors.get(correlationId);
+        if (chunks == null || audioDescriptor == null) {
+            //The download has been cancelled.
+            return;
+        }
+        if (!chunks.add(audioContent.getChunkNumber(), audioContent.getData())) {
+            logger.warn("Duplicate or unexpected chunk ignored : " + audioContent);
+            return;
+        }
+
+        if (chunks.isComplete()) {
+            completeAudio(correlationId, audioDescriptor, chunks);
+        }
     }
 
     @Override
-    public void receiveAudio(User source, AudioContent audioContent) {
-        final List<AudioContent> list = audioContents.get(source.getId()).get(audioContent.getAudioId());
-        list.add(audioContent);
+    public void endReceiveAudio(long correlationId, AudioDescriptor end) {
+        final ChunkAssembler chunks = audioContents.get(correlationId);
+        final AudioDescriptor audioDescriptor = audioDescriptors.get(correlationId);
+        if (chunks == null || audioDescriptor == null) return;
+
+        //The length of a streamed audio is only known once all its chunks have been relayed.
+        if (!chunks.setChunksTotalNumber(end.getChunksTotalNumber())) {
+            logger.error("Unexpected end of audio : " + end);
+            return;
+        }
+        if (chunks.isComplete()) {
+            completeAudio(correlationId, audioDescriptor, chunks);
+        }
+    }
+
+    private void completeAudio(long correlationId, AudioDescriptor audioDescriptor, ChunkAssembler chunks) {
+        final User source = sources.get(correlationId);
+        dropDownload(correlationId);
+        completedDownloads.execute(() -> chatController.audioReceived(source, audioDescriptor, chunks));
+    }
 
-        final AudioDescriptor audioDescriptor = audioDescriptors.get(source.getId()).get(audioContent.getAudioId());
-        if (list.size() == audioDescriptor.getChunksTotalNumber()) {
-            chatController.receiveAudio(audioDescriptor, list);
+    @Override
+    public void cancelTransfer(long correlationId) throws IOException {
+        //Uploads are cancelled without destination, downloads with the user they are received from.
+        final User source = sources.get(correlationId);
+        if (files.containsKey(correlationId) || audios.containsKey(correlationId)) {
+            dropUpload(correlationId);
+            audios.remove(correlationId);
+        } else if (source != null) {
+            dropDownload(correlationId);
+        } else {
+            return;
+        }
+        this.sendRequest(this.buildRequest(RequestType.CANCEL_TRANSFER, null, source, correlationId));
+    }
+
+    @Override
+    public void cancelTransfers() throws IOException {
+        final Set<Long> correlationIds = new HashSet<>(files.keySet());
+        correlationIds.addAll(audios.keySet());
+        correlationIds.addAll(sources.keySet());
+        for (long correlationId : correlationIds) {
+            cancelTransfer(correlationId);
+        }
+    }
+
+    private void dropUpload(long correlationId) {
+        files.remove(correlationId);
+        fileDigests.remove(correlationId);
+    }
+
+    private void dropDownload(long correlationId) {
+        sources.remove(correlationId);
+        fileContents.remove(correlationId);
+        fileDescriptors.remove(correlationId);
+        audioContents.remove(correlationId);
+        audioDescriptors.remove(correlationId);
+    }
+
+    private void dropDownloads(User source) {
+        for (Map.Entry<Long, User> entry : sources.entrySet()) {
+            if (entry.getValue().getId().equals(source.getId())) dropDownload(entry.getKey());
         }
     }
 
@@ -389,4 +718,48 @@ public class ServerServicesImpl implements ServerServices, InputStreamListener {
     public void sendEvent(User destination, Event event) throws IOException {
         this.sendRequest(this.buildRequest(RequestType.PROVOKE_EVENT, event, destination));
     }
+
+    @Override
+    public void acknowledgeFrame(User destination, FrameAck frameAck) throws IOException {
+        this.sendRequest(this.buildRequest(RequestType.ACKNOWLEDGE_FRAME, frameAck, destination));
+    }
+
+    @Override
+    public void requestCall(User destination, CallInformation callInformation) throws IOException {
+        this.sendRequest(this.buildRequest(RequestType.CALL, callInformation, destination));
+    }
+
+    @Override
+    public void acceptCall(User source, CallInformation callInformation) throws IOException {
+        this.sendRequest(this.buildRequest(RequestType.ACCEPT_CALL, callInformation, source));
+    }
+
+    @Override
+    public void endCall(User peer) throws IOException {
+        this.sendRequest(this.buildRequest(RequestType.END_CALL, null, peer));
+    }
+
+    @Override
+    public void sendVoiceFrame(User destination, VoiceFrame frame) throws IOException {
+        this.sendRequest(this.buildRequest(RequestType.SEND_VOICE_FRAME, frame, destination));
+    }
+
+    @Override
+    public void joinRoom(String name, AudioCodecType codecType) throws IOException {
+        //The room imposes its sample rate.
+        this.sendRequest(this.buildRequest(
+                RequestType.JOIN_ROOM,
+                RoomInformation.newInstance(name, codecType, 0),
+                null));
+    }
+
+    @Override
+    public void leaveRoom() throws IOException {
+        this.sendRequest(this.buildRequest(RequestType.LEAVE_ROOM, null, null));
+    }
+
+    @Override
+    public void sendRoomVoiceFrame(VoiceFrame frame) throws IOException {
+        this.sendRequest(this.buildRequest(RequestType.SEND_ROOM_VOICE_FRAME, frame, null));
+    }
 }
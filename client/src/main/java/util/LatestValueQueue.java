@@ -0,0 +1,74 @@
+package util;
+
+import java.util.function.BinaryOperator;
+
+/**
+ * Hands values over from a Thread to another while keeping at most one pending, so that a slow consumer gets the
+ * latest value instead of a backlog of stale ones.
+ *
+ * A value offered while another is pending replaces it, or is merged with it when dropping the pending value would
+ * lose information the consumer needs.
+ */
+public class LatestValueQueue<T> {
+
+    private final BinaryOperator<T> merge;
+    private T value;
+    private boolean isClosed = false;
+    //Number of values replaced before being taken.
+    private long dropped = 0;
+
+    public LatestValueQueue() {
+        this((pending, offered) -> offered);
+    }
+
+    /**
+     * @param merge Combines the pending value with the one offered, in this order.
+     */
+    public LatestValueQueue(BinaryOperator<T> merge) {
+        this.merge = merge;
+    }
+
+    /**
+     * @return false if the queue is closed and the value ignored.
+     */
+    public synchronized boolean offer(T offered) {
+        if (isClosed) return false;
+        if (value == null) {
+            value = offered;
+        } else {
+            value = merge.apply(value, offered);
+            dropped++;
+        }
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Waits for a value to be offered.
+     * @return The pending value, or null once the queue is closed and the last value taken.
+     */
+    public synchronized T take() throws InterruptedException {
+        while (value == null && !isClosed) {
+            wait();
+        }
+        final T taken = value;
+        value = null;
+        return taken;
+    }
+
+    /**
+     * Stops accepting values, the consumer still gets the pending one.
+     */
+    public synchronized void close() {
+        isClosed = true;
+        notifyAll();
+    }
+
+    public synchronized boolean isEmpty() {
+        return value == null;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+}
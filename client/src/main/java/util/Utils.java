@@ -2,20 +2,26 @@ package util;
 
 import model.Event;
 import model.MouseEvent;
+import model.VoiceFrame;
+import model.enums.AudioCodecType;
+import model.enums.FrameEncoding;
 
-import javax.imageio.ImageIO;
 import javax.sound.sampled.AudioFormat;
 import java.awt.*;
 import java.awt.event.InputEvent;
 import java.awt.image.BufferedImage;
 import java.awt.peer.RobotPeer;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 
 
 public class Utils {
 
     private static final Rectangle screen = new Rectangle(Toolkit.getDefaultToolkit().getScreenSize());
+    //Voice is recorded at this sample rate and compressed with this codec, both can be overridden on the command line.
+    private static final int VOICE_SAMPLE_RATE = Integer.getInteger("voice.sampleRate", 16000);
+    private static final String VOICE_CODEC = System.getProperty("voice.codec", AudioCodecType.IMA_ADPCM.name());
+    //The screen is streamed with this encoding, and this quality when it is lossy.
+    private static final String SCREEN_ENCODING = System.getProperty("screen.encoding", FrameEncoding.SCREEN.name());
+    private static final float SCREEN_JPEG_QUALITY = Float.parseFloat(System.getProperty("screen.jpegQuality", "0.7"));
 
     /**
      * Original code from :
@@ -35,6 +41,32 @@ public class Utils {
         return new AudioFormat(sampleRate, sampleSizeInBits, channels, signed, bigEndian);
     }
 
+    /**
+     * Defines the format of the voice before it is compressed : mono, 16 bits signed, little-endian samples.
+     */
+    public static AudioFormat getVoiceFormat(float sampleRate) {
+        return new AudioFormat(sampleRate, 16, 1, true, false);
+    }
+
+    /**
+     * @return The size in bytes of the audio carried by a voice frame, before it is compressed.
+     */
+    public static int getVoiceFrameSize(int sampleRate) {
+        return sampleRate * VoiceFrame.DURATION / 1000 * 2;
+    }
+
+    public static int getVoiceSampleRate() {
+        return VOICE_SAMPLE_RATE;
+    }
+
+    public static AudioCodecType getVoiceCodecType() {
+        try {
+            return AudioCodecType.valueOf(VOICE_CODEC);
+        } catch (IllegalArgumentException e) {
+            return AudioCodecType.IMA_ADPCM;
+        }
+    }
+
     /**
      * Resizes an image to an absolute width and height (the image may not be proportional)
      *
@@ -43,25 +75,33 @@ public class Utils {
     public static BufferedImage resize(BufferedImage inputImage, int scaledWidth, int scaledHeight){
         // creates output image
         BufferedImage outputImage = new BufferedImage(scaledWidth, scaledHeight, inputImage.getType());
+        return resize(inputImage, outputImage);
+    }
 
+    /**
+     * Resizes an image into another one, of the size wanted, so that it can be reused from an image to the next.
+     */
+    public static BufferedImage resize(BufferedImage inputImage, BufferedImage outputImage) {
         // scales the input image to the output image
         Graphics2D g2d = outputImage.createGraphics();
-        g2d.drawImage(inputImage, 0, 0, scaledWidth, scaledHeight, null);
+        g2d.drawImage(inputImage, 0, 0, outputImage.getWidth(), outputImage.getHeight(), null);
         g2d.dispose();
 
         return outputImage;
     }
 
-    public static byte[] toByteArray(BufferedImage image, String type) throws IOException {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()){
-            ImageIO.write(image, type, out);
-
-            byte[] bts =  out.toByteArray();
-            System.out.println(bts.length);
-            return bts;
+    public static FrameEncoding getScreenEncoding() {
+        try {
+            return FrameEncoding.valueOf(SCREEN_ENCODING);
+        } catch (IllegalArgumentException e) {
+            return FrameEncoding.SCREEN;
         }
     }
 
+    public static float getScreenJpegQuality() {
+        return SCREEN_JPEG_QUALITY;
+    }
+
     public static int getScreenWidth() {
         return screen.width;
     }
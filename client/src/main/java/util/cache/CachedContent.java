@@ -0,0 +1,26 @@
+package util.cache;
+
+import model.Content;
+import util.ChunkAssembler;
+
+/**
+ * A complete download held by the cache, with the descriptor it was received with.
+ */
+public class CachedContent<T extends Content> {
+
+    private final T descriptor;
+    private final ChunkAssembler chunks;
+
+    public CachedContent(T descriptor, ChunkAssembler chunks) {
+        this.descriptor = descriptor;
+        this.chunks = chunks;
+    }
+
+    public T getDescriptor() {
+        return descriptor;
+    }
+
+    public ChunkAssembler getChunks() {
+        return chunks;
+    }
+}
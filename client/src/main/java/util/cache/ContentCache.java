@@ -0,0 +1,18 @@
+package util.cache;
+
+import model.AudioDescriptor;
+import model.FileDescriptor;
+import model.User;
+import util.ChunkAssembler;
+
+/**
+ * Keeps the audios and files downloaded by the user, by source and transfer id, so that they can be played or saved
+ * again without downloading them from the server.
+ */
+public interface ContentCache {
+
+    void putAudio(User source, AudioDescriptor audioDescriptor, ChunkAssembler chunks);
+    CachedContent<AudioDescriptor> getAudio(User source, long audioId);
+    void putFile(User source, FileDescriptor fileDescriptor, ChunkAssembler chunks);
+    CachedContent<FileDescriptor> getFile(User source, long fileId);
+}
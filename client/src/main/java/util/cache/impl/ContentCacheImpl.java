@@ -0,0 +1,224 @@
+package util.cache.impl;
+
+import model.AudioDescriptor;
+import model.Content;
+import model.FileDescriptor;
+import model.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import util.ChunkAssembler;
+import util.cache.CachedContent;
+import util.cache.ContentCache;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Least recently used cache of the downloads, held in memory up to a size and then spilled to temporary files.
+ *
+ * The contents evicted from memory are written to the disk by a single Thread, in the order they were evicted, and
+ * are still served from memory until they are written. The least recently used files are deleted once the disk size
+ * is reached.
+ */
+public class ContentCacheImpl implements ContentCache {
+
+    private static final Logger logger = LogManager.getLogger(ContentCacheImpl.class);
+
+    //Bytes of content kept in memory.
+    private static final long MEMORY_SIZE = Long.getLong("cache.memorySize", 32L * 1024 * 1024);
+    //Bytes of content kept on the disk, larger contents are not cached.
+    private static final long DISK_SIZE = Long.getLong("cache.diskSize", 256L * 1024 * 1024);
+
+    //In access order, the first entries are the least recently used.
+    private final LinkedHashMap<String, CachedContent<?>> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, SpilledContent> disk = new LinkedHashMap<>(16, 0.75f, true);
+    //Contents evicted from memory, until they are written to the disk.
+    private final Map<String, CachedContent<?>> spilling = new HashMap<>();
+    private final ExecutorService spiller = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long memoryLength = 0;
+    private long diskLength = 0;
+    private File directory;
+
+    @Override
+    public void putAudio(User source, AudioDescriptor audioDescriptor, ChunkAssembler chunks) {
+        put(key("audio", source, audioDescriptor.getAudioId()), new CachedContent<>(audioDescriptor, chunks));
+    }
+
+    @Override
+    public CachedContent<AudioDescriptor> getAudio(User source, long audioId) {
+        return get(key("audio", source, audioId));
+    }
+
+    @Override
+    public void putFile(User source, FileDescriptor fileDescriptor, ChunkAssembler chunks) {
+        put(key("file", source, fileDescriptor.getFileId()), new CachedContent<>(fileDescriptor, chunks));
+    }
+
+    @Override
+    public CachedContent<FileDescriptor> getFile(User source, long fileId) {
+        return get(key("file", source, fileId));
+    }
+
+    //The ids are only unique for the user who sent the content, the own contents of the user have no source.
+    private static String key(String type, User source, long id) {
+        return type + "/" + ((source == null) ? "" : source.getId()) + "/" + id;
+    }
+
+    private void put(String key, CachedContent<?> content) {
+        final long length = content.getChunks().getLength();
+        if (!content.getChunks().isComplete() || length > DISK_SIZE) return;
+
+        final Map<String, CachedContent<?>> evicted = new LinkedHashMap<>();
+        synchronized (this) {
+            remove(key);
+            if (length > MEMORY_SIZE) {
+                evicted.put(key, content);
+            } else {
+                memory.put(key, content);
+                memoryLength += length;
+            }
+            final Iterator<Map.Entry<String, CachedContent<?>>> iterator = memory.entrySet().iterator();
+            while (memoryLength > MEMORY_SIZE && iterator.hasNext()) {
+                final Map.Entry<String, CachedContent<?>> eldest = iterator.next();
+                iterator.remove();
+                memoryLength -= eldest.getValue().getChunks().getLength();
+                evicted.put(eldest.getKey(), eldest.getValue());
+            }
+            spilling.putAll(evicted);
+        }
+        if (!evicted.isEmpty()) spiller.execute(() -> spill(evicted));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Content> CachedContent<T> get(String key) {
+        final SpilledContent spilled;
+        synchronized (this) {
+            CachedContent<?> content = memory.get(key);
+            if (content == null) content = spilling.get(key);
+            if (content != null) return (CachedContent<T>) content;
+            spilled = disk.get(key);
+            if (spilled == null) return null;
+        }
+
+        try {
+            final CachedContent<?> content = read(spilled);
+            //The content is used again, it is moved back to memory unless too large to stay there.
+            if (spilled.length <= MEMORY_SIZE) put(key, content);
+            return (CachedContent<T>) content;
+        } catch (IOException e) {
+            //The file may have been deleted in the meantime, the content is downloaded again.
+            logger.warn("Cached content not read : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void remove(String key) {
+        final CachedContent<?> content = memory.remove(key);
+        if (content != null) memoryLength -= content.getChunks().getLength();
+        spilling.remove(key);
+        final SpilledContent spilled = disk.remove(key);
+        if (spilled != null) delete(spilled);
+    }
+
+    private void spill(Map<String, CachedContent<?>> evicted) {
+        for (Map.Entry<String, CachedContent<?>> entry : evicted.entrySet()) {
+            SpilledContent spilled = null;
+            try {
+                spilled = write(entry.getValue());
+            } catch (IOException e) {
+                logger.warn("Cached content not spilled to the disk : " + e.getMessage());
+            }
+
+            synchronized (this) {
+                //The content has been cached again or used in the meantime.
+                if (spilling.get(entry.getKey()) != entry.getValue()) {
+                    if (spilled != null) spilled.file.delete();
+                    continue;
+                }
+                spilling.remove(entry.getKey());
+                if (spilled == null) continue;
+
+                disk.put(entry.getKey(), spilled);
+                diskLength += spilled.length;
+                final Iterator<SpilledContent> iterator = disk.values().iterator();
+                while (diskLength > DISK_SIZE && iterator.hasNext()) {
+                    final SpilledContent eldest = iterator.next();
+                    iterator.remove();
+                    delete(eldest);
+                }
+            }
+        }
+    }
+
+    private void delete(SpilledContent spilled) {
+        diskLength -= spilled.length;
+        if (!spilled.file.delete()) logger.warn("Cached content not deleted : " + spilled.file);
+    }
+
+    /**
+     * Writes the chunks one after the other, each preceded by its length, so that they are read back as they were.
+     */
+    private SpilledContent write(CachedContent<?> content) throws IOException {
+        final File file = File.createTempFile("content", ".cache", getDirectory());
+        file.deleteOnExit();
+        final ChunkAssembler chunks = content.getChunks();
+        try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            final int chunksTotalNumber = (int)chunks.getChunksTotalNumber();
+            os.writeInt(chunksTotalNumber);
+            for (int i = 0; i < chunksTotalNumber; i++) {
+                final byte[] data = chunks.get(i);
+                os.writeInt(data.length);
+                os.write(data);
+            }
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        return new SpilledContent(content.getDescriptor(), file, chunks.getLength());
+    }
+
+    private static CachedContent<?> read(SpilledContent spilled) throws IOException {
+        try (DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(spilled.file)))) {
+            final int chunksTotalNumber = is.readInt();
+            final ChunkAssembler chunks = new ChunkAssembler(chunksTotalNumber);
+            for (int i = 0; i < chunksTotalNumber; i++) {
+                final byte[] data = new byte[is.readInt()];
+                is.readFully(data);
+                chunks.add(i, data);
+            }
+            return new CachedContent<>(spilled.descriptor, chunks);
+        }
+    }
+
+    private synchronized File getDirectory() throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("chat-cache").toFile();
+            //Deleted after the files it contains, which are registered after it.
+            directory.deleteOnExit();
+        }
+        return directory;
+    }
+
+    private static class SpilledContent {
+
+        private final Content descriptor;
+        private final File file;
+        private final long length;
+
+        private SpilledContent(Content descriptor, File file, long length) {
+            this.descriptor = descriptor;
+            this.file = file;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package util.image;
+
+import model.enums.FrameEncoding;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Compresses the images of the screen, whole or as tiles, streamed to the user controlling it.
+ */
+public interface FrameCodec {
+
+    FrameEncoding getEncoding();
+
+    byte[] encode(BufferedImage image) throws IOException;
+
+    /**
+     * @return The pixels of the image, row after row, as opaque ARGB values.
+     */
+    int[] decode(byte[] data, int width, int height) throws IOException;
+
+    /**
+     * Sets the quality of the next images, from 0 to 1, which only lossy encodings take into account.
+     */
+    default void setQuality(float quality) {}
+}
@@ -0,0 +1,158 @@
+package util.image;
+
+import util.image.impl.DeflateFrameCodec;
+import util.image.impl.JpegFrameCodec;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures the size of the images encoded by the frame codecs, the time they take and the memory they allocate,
+ * next to the PNG images the frames were encoded to before the codecs, on a synthetic desktop made of flat areas,
+ * text and a gradient. The allocations of a codec reused from a frame to the next are compared to the ones of a new
+ * codec per frame, which reallocates its buffers every time like the codecs did before reusing them.
+ *
+ * Runs headless, with the client classes on the class path :
+ * java -Djava.awt.headless=true -cp ... util.image.FrameCodecBenchmark [width height iterations]
+ */
+public class FrameCodecBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20;
+
+    private FrameCodecBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int width = (args.length > 1) ? Integer.parseInt(args[0]) : 1280;
+        final int height = (args.length > 1) ? Integer.parseInt(args[1]) : 800;
+        final int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 50;
+        final BufferedImage image = newDesktop(width, height);
+
+        System.out.println(width + "x" + height + ", " + iterations + " iterations");
+        System.out.printf("%-8s %10s %12s %12s %14s%n", "codec", "bytes", "encode ms", "decode ms", "allocated KB");
+        measure("SCREEN", new DeflateFrameCodec(true), image, iterations);
+        measure("DEFLATE", new DeflateFrameCodec(false), image, iterations);
+        measure("JPEG", new JpegFrameCodec(0.7f), image, iterations);
+        measurePng(image, iterations);
+
+        System.out.println("New codec per frame");
+        System.out.printf("%-8s %12s %14s%n", "codec", "encode ms", "allocated KB");
+        measureNewCodecs("SCREEN", () -> new DeflateFrameCodec(true), image, iterations);
+        measureNewCodecs("DEFLATE", () -> new DeflateFrameCodec(false), image, iterations);
+        measureNewCodecs("JPEG", () -> new JpegFrameCodec(0.7f), image, iterations);
+    }
+
+    private static void measure(String name, FrameCodec codec, BufferedImage image, int iterations)
+            throws IOException {
+        byte[] encoded = null;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            encoded = codec.encode(image);
+            codec.decode(encoded, image.getWidth(), image.getHeight());
+        }
+        final long allocated = getAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            encoded = codec.encode(image);
+        }
+        final double encodeTime = (System.nanoTime() - start) / 1e6 / iterations;
+        final double encodeAllocated = (getAllocatedBytes() - allocated) / 1024.0 / iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            codec.decode(encoded, image.getWidth(), image.getHeight());
+        }
+        final double decodeTime = (System.nanoTime() - start) / 1e6 / iterations;
+        System.out.printf("%-8s %10d %12.1f %12.1f %14.1f%n",
+                name, encoded.length, encodeTime, decodeTime, encodeAllocated);
+    }
+
+    private static void measureNewCodecs(String name, Supplier<FrameCodec> codecs, BufferedImage image,
+                                         int iterations) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            codecs.get().encode(image);
+        }
+        final long allocated = getAllocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            codecs.get().encode(image);
+        }
+        final double encodeTime = (System.nanoTime() - start) / 1e6 / iterations;
+        final double encodeAllocated = (getAllocatedBytes() - allocated) / 1024.0 / iterations;
+        System.out.printf("%-8s %12.1f %14.1f%n", name, encodeTime, encodeAllocated);
+    }
+
+    //Bytes allocated on the heap by the current Thread, as counted by HotSpot.
+    private static long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    //The frames were written by ImageIO as PNG images before the codecs.
+    private static void measurePng(BufferedImage image, int iterations) throws IOException {
+        byte[] encoded = null;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            encoded = writePng(image);
+            ImageIO.read(new ByteArrayInputStream(encoded));
+        }
+        final long allocated = getAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            encoded = writePng(image);
+        }
+        final double encodeTime = (System.nanoTime() - start) / 1e6 / iterations;
+        final double encodeAllocated = (getAllocatedBytes() - allocated) / 1024.0 / iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            ImageIO.read(new ByteArrayInputStream(encoded));
+        }
+        final double decodeTime = (System.nanoTime() - start) / 1e6 / iterations;
+        System.out.printf("%-8s %10d %12.1f %12.1f %14.1f%n",
+                "PNG", encoded.length, encodeTime, decodeTime, encodeAllocated);
+    }
+
+    private static byte[] writePng(BufferedImage image) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", os);
+        return os.toByteArray();
+    }
+
+    /**
+     * A desktop background with a gradient, two windows with a title bar and lines of text, and a task bar.
+     */
+    private static BufferedImage newDesktop(int width, int height) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, new Color(30, 60, 110), width, height, new Color(90, 140, 190)));
+        graphics.fillRect(0, 0, width, height);
+
+        final Random random = new Random(42);
+        graphics.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        final int[][] windows = {{width / 20, height / 12, width / 2, height * 2 / 3},
+                {width * 2 / 5, height / 4, width / 2, height / 2}};
+        for (int[] window : windows) {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(window[0], window[1], window[2], window[3]);
+            graphics.setColor(new Color(60, 60, 70));
+            graphics.fillRect(window[0], window[1], window[2], 24);
+            graphics.setColor(Color.BLACK);
+            for (int y = window[1] + 40; y < window[1] + window[3] - 8; y += 16) {
+                final StringBuilder line = new StringBuilder();
+                final int length = random.nextInt(window[2] / 8);
+                for (int i = 0; i < length; i++) {
+                    line.append(random.nextInt(6) == 0 ? ' ' : (char)('a' + random.nextInt(26)));
+                }
+                graphics.drawString(line.toString(), window[0] + 8, y);
+            }
+        }
+        graphics.setColor(new Color(40, 40, 45));
+        graphics.fillRect(0, height - 32, width, 32);
+        graphics.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,23 @@
+package util.image;
+
+import model.enums.FrameEncoding;
+import util.Utils;
+import util.image.impl.DeflateFrameCodec;
+import util.image.impl.JpegFrameCodec;
+
+public class FrameCodecs {
+
+    private FrameCodecs() {}
+
+    public static FrameCodec newCodec(FrameEncoding encoding) {
+        switch (encoding) {
+            case JPEG:
+                return new JpegFrameCodec(Utils.getScreenJpegQuality());
+            case DEFLATE:
+                return new DeflateFrameCodec(false);
+            case SCREEN:
+            default:
+                return new DeflateFrameCodec(true);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package util.image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Paces the frames of a screen stream on the acknowledgements of the viewer, which are sent once a frame is displayed.
+ *
+ * The round-trip time of a frame is the smallest one measured plus the time to transfer its bytes at the measured
+ * bandwidth, it only grows beyond as frames queue up somewhere between the streamer and the viewer's screen, whether
+ * the link or the viewer is too slow. The frame rate is then halved,
+ * at most once per round-trip, and raised by one frame per second for every frame acknowledged in time
+ * (additive increase, multiplicative decrease). The quality of lossy encodings follows the same rule once the frame
+ * rate reaches its bounds, it is lowered when the frame rate cannot be lowered anymore and raised back at full rate.
+ */
+public class FramePacer {
+
+    public static final double MIN_FPS = 1;
+    public static final double MAX_FPS = 30;
+    //Same pace as before the viewer is heard from.
+    public static final double INITIAL_FPS = 2;
+    //Number of frames sent and not acknowledged yet beyond which no frame is sent.
+    public static final int MAX_FRAMES_IN_FLIGHT = 2;
+    //Round-trip time above the smallest one measured from which frames are considered queued up, in milliseconds.
+    public static final long QUEUING_DELAY = 50;
+    //Time after which the frames in flight are considered lost, in milliseconds.
+    public static final long ACK_TIMEOUT = 2000;
+    public static final float MIN_QUALITY = 0.3f;
+    public static final float QUALITY_STEP = 0.05f;
+    //Share of the bandwidth measured kept at every acknowledgement, so that it follows the link when it slows down.
+    private static final double BANDWIDTH_DECAY = 0.9;
+
+    private final float maxQuality;
+    //Frames not acknowledged yet, by sequence number, in sending order.
+    private final LinkedHashMap<Long, FrameInFlight> framesInFlight = new LinkedHashMap<>();
+
+    private double fps = INITIAL_FPS;
+    private float quality;
+    private long nextFrameTime = 0;
+    private long minRoundTripTime = Long.MAX_VALUE;
+    private long smoothedRoundTripTime = 0;
+    private long lastDecreaseTime = 0;
+    //Highest recent delivery rate, in bytes per millisecond.
+    private double bandwidth = 0;
+
+    /**
+     * @param maxQuality The quality of lossy encodings when there is no congestion, from 0 to 1.
+     */
+    public FramePacer(float maxQuality) {
+        this.maxQuality = Math.max(MIN_QUALITY, maxQuality);
+        this.quality = this.maxQuality;
+    }
+
+    /**
+     * Waits until the next frame can be sent, both because its time has come and because few enough are in flight.
+     */
+    public synchronized void awaitNextFrame() throws InterruptedException {
+        while (true) {
+            final long now = System.currentTimeMillis();
+            long timeout = nextFrameTime - now;
+            if (framesInFlight.size() >= MAX_FRAMES_IN_FLIGHT) {
+                final long oldest = framesInFlight.values().iterator().next().sendingTime;
+                if (now - oldest >= ACK_TIMEOUT) {
+                    //The viewer missed these frames or stopped answering, there is no point in waiting for them.
+                    framesInFlight.clear();
+                    decrease(now);
+                    continue;
+                }
+                timeout = oldest + ACK_TIMEOUT - now;
+            } else if (timeout <= 0) {
+                nextFrameTime = now + (long)(1000 / fps);
+                return;
+            }
+            wait(timeout);
+        }
+    }
+
+    public synchronized void frameSent(long sequenceNumber, int length) {
+        framesInFlight.put(sequenceNumber, new FrameInFlight(System.currentTimeMillis(), length));
+    }
+
+    public synchronized void frameAcknowledged(long sequenceNumber) {
+        final FrameInFlight frame = framesInFlight.get(sequenceNumber);
+        if (frame == null) return;
+
+        //The frames are displayed in order, the ones sent before are acknowledged too.
+        final Iterator<Map.Entry<Long, FrameInFlight>> iterator = framesInFlight.entrySet().iterator();
+        while (iterator.hasNext() && iterator.next().getKey() != sequenceNumber) {
+            iterator.remove();
+        }
+        iterator.remove();
+
+        final long now = System.currentTimeMillis();
+        final long roundTripTime = Math.max(1, now - frame.sendingTime);
+        minRoundTripTime = Math.min(minRoundTripTime, roundTripTime);
+        smoothedRoundTripTime = (smoothedRoundTripTime == 0)
+                ? roundTripTime
+                : (7 * smoothedRoundTripTime + roundTripTime) / 8;
+        bandwidth = Math.max(bandwidth * BANDWIDTH_DECAY, (double)frame.length / roundTripTime);
+
+        //Large frames such as the key frames take longer without anything being queued.
+        final long transferTime = (long)(frame.length / bandwidth);
+        if (roundTripTime > minRoundTripTime + transferTime + QUEUING_DELAY) {
+            decrease(now);
+        } else if (fps < MAX_FPS) {
+            fps = Math.min(MAX_FPS, fps + 1);
+        } else {
+            quality = Math.min(maxQuality, quality + QUALITY_STEP);
+        }
+        notifyAll();
+    }
+
+    private void decrease(long now) {
+        //A single decrease per round-trip, the frames already in flight were sent at the previous rate.
+        if (now - lastDecreaseTime < smoothedRoundTripTime) return;
+        lastDecreaseTime = now;
+        if (fps > MIN_FPS) {
+            fps = Math.max(MIN_FPS, fps / 2);
+        } else {
+            quality = Math.max(MIN_QUALITY, quality - QUALITY_STEP * 4);
+        }
+    }
+
+    public synchronized double getFps() {
+        return fps;
+    }
+
+    public synchronized float getQuality() {
+        return quality;
+    }
+
+    public synchronized long getRoundTripTime() {
+        return smoothedRoundTripTime;
+    }
+
+    private static class FrameInFlight {
+
+        private final long sendingTime;
+        private final int length;
+
+        private FrameInFlight(long sendingTime, int length) {
+            this.sendingTime = sendingTime;
+            this.length = length;
+        }
+    }
+}
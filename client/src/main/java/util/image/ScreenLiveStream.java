@@ -1,6 +1,7 @@
 package util.image;
 
 import model.Event;
+import model.FrameAck;
 import model.ScreenInformation;
 import model.User;
 
@@ -11,5 +12,6 @@ public interface ScreenLiveStream {
 
     void startStreaming(User destination, ScreenInformation screenInformation) throws IOException, AWTException;
     void provokeEvent(Event event);
+    void frameAcknowledged(FrameAck frameAck);
     void stopStreaming();
 }
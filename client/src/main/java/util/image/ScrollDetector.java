@@ -0,0 +1,137 @@
+package util.image;
+
+import model.CopyRect;
+
+import java.util.Arrays;
+
+/**
+ * Finds the part of the screen that scrolled between two captures, so that its pixels are copied by the viewer
+ * instead of being sent again.
+ *
+ * Only the area that changed is searched, a line at a time: the lines of the capture are compared to the ones of
+ * the previous capture shifted by every possible offset, and the offset matching the most lines wins. Lines are
+ * compared by their hashes, a wrong match only costs more changed tiles since the tiles are compared to the
+ * previous capture once shifted.
+ */
+public class ScrollDetector {
+
+    //Changed areas of less than a few tiles are sent as tiles.
+    private static final int MIN_AREA = 4 * TileEncoder.TILE_SIZE * TileEncoder.TILE_SIZE;
+    //Share of the lines of the changed area that have to be found again once shifted.
+    private static final double MIN_MATCHING = 0.5;
+
+    private ScrollDetector() {
+    }
+
+    /**
+     * @param pixels The pixels of the capture, row after row.
+     * @param previous The pixels of the previous capture, of the same size.
+     * @return The vertical or horizontal shift of the area that changed, or null if it did not scroll.
+     */
+    public static CopyRect detect(int[] pixels, int[] previous, int width, int height) {
+        //Bounds of the pixels that changed.
+        int top = -1;
+        int bottom = -1;
+        int left = width;
+        int right = -1;
+        for (int y = 0; y < height; y++) {
+            final int start = y * width;
+            int first = 0;
+            while (first < width && pixels[start + first] == previous[start + first]) first++;
+            if (first == width) continue;
+            int last = width - 1;
+            while (pixels[start + last] == previous[start + last]) last--;
+            if (top < 0) top = y;
+            bottom = y + 1;
+            left = Math.min(left, first);
+            right = Math.max(right, last + 1);
+        }
+        if (top < 0 || (right - left) * (bottom - top) < MIN_AREA) return null;
+
+        final int areaWidth = right - left;
+        final int areaHeight = bottom - top;
+        final int dy = findShift(hashRows(pixels, width, left, top, areaWidth, areaHeight),
+                hashRows(previous, width, left, top, areaWidth, areaHeight));
+        if (dy != 0) {
+            return CopyRect.newInstance(left, top + Math.max(0, -dy), left, top + Math.max(0, dy),
+                    areaWidth, areaHeight - Math.abs(dy));
+        }
+        final int dx = findShift(hashColumns(pixels, width, left, top, areaWidth, areaHeight),
+                hashColumns(previous, width, left, top, areaWidth, areaHeight));
+        if (dx != 0) {
+            return CopyRect.newInstance(left + Math.max(0, -dx), top, left + Math.max(0, dx), top,
+                    areaWidth - Math.abs(dx), areaHeight);
+        }
+        return null;
+    }
+
+    /**
+     * Copies the pixels the same way as the viewer, the ones overwritten being copied first.
+     */
+    public static void apply(CopyRect copy, int[] pixels, int width) {
+        final boolean isDownwards = copy.getY() > copy.getSourceY();
+        for (int i = 0; i < copy.getHeight(); i++) {
+            final int row = isDownwards ? copy.getHeight() - 1 - i : i;
+            System.arraycopy(
+                    pixels, (copy.getSourceY() + row) * width + copy.getSourceX(),
+                    pixels, (copy.getY() + row) * width + copy.getX(),
+                    copy.getWidth());
+        }
+    }
+
+    /**
+     * @return The shift of the lines from the previous hashes to the current ones, 0 if none matches enough lines.
+     */
+    private static int findShift(long[] current, long[] previous) {
+        final int length = current.length;
+        //Lines that did not change, blank ones typically, match the same whatever the shift.
+        final int unshifted = countMatching(current, previous, 0);
+        int bestShift = 0;
+        int bestMatching = Math.max(unshifted, (int)Math.ceil(length * MIN_MATCHING) - 1);
+        for (int shift = 1; shift <= length * (1 - MIN_MATCHING); shift++) {
+            for (int sign = 1; sign >= -1; sign -= 2) {
+                final int matching = countMatching(current, previous, shift * sign);
+                if (matching > bestMatching) {
+                    bestMatching = matching;
+                    bestShift = shift * sign;
+                }
+            }
+        }
+        return bestShift;
+    }
+
+    private static int countMatching(long[] current, long[] previous, int shift) {
+        int matching = 0;
+        for (int i = Math.max(0, shift); i < current.length + Math.min(0, shift); i++) {
+            if (current[i] == previous[i - shift]) matching++;
+        }
+        return matching;
+    }
+
+    //FNV-1a hashes of the rows of an area.
+    private static long[] hashRows(int[] pixels, int width, int x, int y, int areaWidth, int areaHeight) {
+        final long[] hashes = new long[areaHeight];
+        for (int row = 0; row < areaHeight; row++) {
+            final int start = (y + row) * width + x;
+            long hash = 0xcbf29ce484222325L;
+            for (int i = start; i < start + areaWidth; i++) {
+                hash = (hash ^ (pixels[i] & 0xFFFFFF)) * 0x100000001b3L;
+            }
+            hashes[row] = hash;
+        }
+        return hashes;
+    }
+
+    //FNV-1a hashes of the columns of an area, computed row after row to read the pixels in order.
+    private static long[] hashColumns(int[] pixels, int width, int x, int y, int areaWidth, int areaHeight) {
+        final long[] hashes = new long[areaWidth];
+        Arrays.fill(hashes, 0xcbf29ce484222325L);
+        for (int row = 0; row < areaHeight; row++) {
+            final int start = (y + row) * width + x;
+            for (int column = 0; column < areaWidth; column++) {
+                hashes[column] = (hashes[column] ^ (pixels[start + column] & 0xFFFFFF)) * 0x100000001b3L;
+            }
+        }
+        return hashes;
+    }
+}
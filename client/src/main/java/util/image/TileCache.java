@@ -0,0 +1,46 @@
+package util.image;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tiles recently sent or received, by hash of their pixels, so that a tile seen again is sent as a reference.
+ *
+ * The streamer and the viewer keep one each, holding the same tiles in the same order: both add or look up the
+ * tiles of the frames in the order they are sent, and clear them at every key frame, where a viewer can join.
+ * Both then evict the same least recently used tiles.
+ */
+public class TileCache<T> {
+
+    //Number of tiles kept, 16 MB of 64x64 tiles once decoded.
+    public static final int CAPACITY = 1024;
+
+    private final LinkedHashMap<Long, T> tiles = new LinkedHashMap<Long, T>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, T> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    private long hits = 0;
+
+    /**
+     * @return The tile with this hash, which becomes the most recently used, or null if it is not cached.
+     */
+    public T get(long hash) {
+        final T tile = tiles.get(hash);
+        if (tile != null) hits++;
+        return tile;
+    }
+
+    public void put(long hash, T tile) {
+        tiles.put(hash, tile);
+    }
+
+    public void clear() {
+        tiles.clear();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+}
@@ -0,0 +1,122 @@
+package util.image;
+
+import model.Tile;
+import model.enums.FrameEncoding;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Splits the captures of the screen into square tiles and encodes the ones that changed since the previous capture,
+ * in parallel on all the cores.
+ *
+ * Every worker has its own codec, since the codecs reuse their buffers. The tiles are listed in the order of their
+ * position in the screen whatever the order they are encoded in, so that a capture always gives the same frame.
+ */
+public class TileEncoder {
+
+    //Side of the tiles, in pixels.
+    public static final int TILE_SIZE = 64;
+
+    //Shared by all the streams, its Threads are daemons started on demand.
+    private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final FrameEncoding encoding;
+    private final ThreadLocal<FrameCodec> codecs;
+
+    public TileEncoder(FrameEncoding encoding) {
+        this.encoding = encoding;
+        this.codecs = ThreadLocal.withInitial(() -> FrameCodecs.newCodec(encoding));
+    }
+
+    public FrameEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @param pixels The pixels of the image, row after row.
+     * @param previous The pixels of the previous capture, or null to encode all the tiles.
+     * @param quality The quality of lossy encodings, from 0 to 1.
+     * @return The tiles that changed, encoded.
+     */
+    public List<Tile> encode(BufferedImage image, int[] pixels, int[] previous, float quality) throws IOException {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        //Comparing the pixels is quick next to encoding them, only the tiles that changed are handed to the workers.
+        final List<Callable<Tile>> tasks = new ArrayList<>();
+        for (int y = 0; y < height; y += TILE_SIZE) {
+            final int tileHeight = Math.min(TILE_SIZE, height - y);
+            for (int x = 0; x < width; x += TILE_SIZE) {
+                final int tileWidth = Math.min(TILE_SIZE, width - x);
+                if (previous == null || isTileChanged(pixels, previous, width, x, y, tileWidth, tileHeight)) {
+                    final int tileX = x;
+                    final int tileY = y;
+                    tasks.add(() -> encodeTile(image, pixels, tileX, tileY, tileWidth, tileHeight, quality));
+                }
+            }
+        }
+
+        final List<Tile> tiles = new ArrayList<>(tasks.size());
+        if (tasks.isEmpty()) return tiles;
+        try {
+            for (Future<Tile> tile : pool.invokeAll(tasks)) {
+                tiles.add(tile.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding the tiles");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException)e.getCause();
+            throw new IOException("Tile not encoded : " + e.getCause(), e.getCause());
+        }
+        return tiles;
+    }
+
+    private Tile encodeTile(BufferedImage image, int[] pixels, int x, int y, int tileWidth, int tileHeight,
+                            float quality) throws IOException {
+        final FrameCodec codec = codecs.get();
+        codec.setQuality(quality);
+        final byte[] encoded = codec.encode(image.getSubimage(x, y, tileWidth, tileHeight));
+        return Tile.newInstance(
+                x, y, tileWidth, tileHeight,
+                hash(pixels, image.getWidth(), x, y, tileWidth, tileHeight),
+                encoded);
+    }
+
+    /**
+     * 64 bits FNV-1a hash of the pixels of a tile and of its size, a pixel at a time, with the final mix of
+     * MurmurHash3 so that all its bits depend on all the pixels.
+     */
+    private static long hash(int[] pixels, int width, int x, int y, int tileWidth, int tileHeight) {
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ tileWidth) * 0x100000001b3L;
+        hash = (hash ^ tileHeight) * 0x100000001b3L;
+        for (int row = y; row < y + tileHeight; row++) {
+            final int start = row * width + x;
+            for (int i = start; i < start + tileWidth; i++) {
+                hash = (hash ^ (pixels[i] & 0xFFFFFF)) * 0x100000001b3L;
+            }
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static boolean isTileChanged(int[] pixels, int[] previous, int width,
+                                         int x, int y, int tileWidth, int tileHeight) {
+        for (int row = y; row < y + tileHeight; row++) {
+            final int start = row * width + x;
+            for (int i = start; i < start + tileWidth; i++) {
+                if (pixels[i] != previous[i]) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,121 @@
+package util.image.impl;
+
+import model.enums.FrameEncoding;
+import util.image.FrameCodec;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Lossless encoding of the RGB bytes of the pixels with Deflate.
+ *
+ * When the pixels are predicted, every byte is replaced by its difference with the same byte of the pixel on its
+ * left, as the Sub filter of PNG does. Flat areas and repeated patterns then become runs of zeros that compress far
+ * better, which is worth the slower compression level used for them.
+ *
+ * The buffers and the Deflater are reused from an image to the next, a codec is only used by one Thread.
+ */
+public class DeflateFrameCodec implements FrameCodec {
+
+    private static final int BYTES_PER_PIXEL = 3;
+
+    private final boolean isPredicted;
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater();
+    private int[] pixels = new int[0];
+    private byte[] bytes = new byte[0];
+    private byte[] output = new byte[0];
+
+    public DeflateFrameCodec(boolean isPredicted) {
+        this.isPredicted = isPredicted;
+        this.deflater = new Deflater(isPredicted ? Deflater.DEFAULT_COMPRESSION : Deflater.BEST_SPEED);
+    }
+
+    @Override
+    public FrameEncoding getEncoding() {
+        return isPredicted ? FrameEncoding.SCREEN : FrameEncoding.DEFLATE;
+    }
+
+    @Override
+    public byte[] encode(BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int length = width * height * BYTES_PER_PIXEL;
+        if (pixels.length < width * height) pixels = new int[width * height];
+        if (bytes.length < length) bytes = new byte[length];
+        image.getRGB(0, 0, width, height, pixels, 0, width);
+        for (int y = 0; y < height; y++) {
+            int left = 0;
+            for (int x = 0; x < width; x++) {
+                final int pixel = pixels[y * width + x];
+                final int value = isPredicted ? subtract(pixel, left) : pixel;
+                final int offset = (y * width + x) * BYTES_PER_PIXEL;
+                bytes[offset] = (byte)(value >> 16);
+                bytes[offset + 1] = (byte)(value >> 8);
+                bytes[offset + 2] = (byte)value;
+                left = pixel;
+            }
+        }
+
+        deflater.reset();
+        deflater.setInput(bytes, 0, length);
+        deflater.finish();
+        int compressed = 0;
+        while (!deflater.finished()) {
+            if (compressed == output.length) output = Arrays.copyOf(output, Math.max(8192, output.length * 2));
+            compressed += deflater.deflate(output, compressed, output.length - compressed);
+        }
+        //Only the encoded image itself is allocated, it is sent with the frame.
+        return Arrays.copyOf(output, compressed);
+    }
+
+    @Override
+    public int[] decode(byte[] data, int width, int height) throws IOException {
+        final int expected = width * height * BYTES_PER_PIXEL;
+        if (bytes.length < expected) bytes = new byte[expected];
+        try {
+            inflater.reset();
+            inflater.setInput(data);
+            int length = 0;
+            while (length < expected && !inflater.finished()) {
+                final int count = inflater.inflate(bytes, length, expected - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += count;
+            }
+            if (length < expected) throw new IOException("Truncated image of " + data.length + " bytes");
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid image : " + e.getMessage(), e);
+        }
+
+        final int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            int left = 0;
+            for (int x = 0; x < width; x++) {
+                final int offset = (y * width + x) * BYTES_PER_PIXEL;
+                final int value = (bytes[offset] & 0xFF) << 16 | (bytes[offset + 1] & 0xFF) << 8
+                        | (bytes[offset + 2] & 0xFF);
+                final int pixel = isPredicted ? add(value, left) : value;
+                pixels[y * width + x] = 0xFF000000 | pixel;
+                left = pixel;
+            }
+        }
+        return pixels;
+    }
+
+    //Byte per byte, without carry from a color to the next.
+    private static int subtract(int pixel, int left) {
+        return ((pixel >> 16) - (left >> 16) & 0xFF) << 16
+                | ((pixel >> 8) - (left >> 8) & 0xFF) << 8
+                | (pixel - left & 0xFF);
+    }
+
+    private static int add(int value, int left) {
+        return ((value >> 16) + (left >> 16) & 0xFF) << 16
+                | ((value >> 8) + (left >> 8) & 0xFF) << 8
+                | (value + left & 0xFF);
+    }
+}
@@ -0,0 +1,84 @@
+package util.image.impl;
+
+import model.enums.FrameEncoding;
+import util.image.FrameCodec;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Lossy encoding through the JPEG writer of ImageIO, the quality ranges from 0 (smallest) to 1 (best).
+ *
+ * The writer, its output buffer and the image in the layout it encodes fastest are reused from an image to the next,
+ * a codec is only used by one Thread.
+ */
+public class JpegFrameCodec implements FrameCodec {
+
+    private final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    private final ImageWriteParam param = writer.getDefaultWriteParam();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    //The writer converts the images with integer pixels row after row, not the ones with the bytes of JPEG.
+    private BufferedImage bgr = new BufferedImage(1, 1, BufferedImage.TYPE_3BYTE_BGR);
+    private float quality;
+
+    public JpegFrameCodec(float quality) {
+        setQuality(quality);
+    }
+
+    @Override
+    public FrameEncoding getEncoding() {
+        return FrameEncoding.JPEG;
+    }
+
+    @Override
+    public void setQuality(float quality) {
+        this.quality = Math.max(0, Math.min(1, quality));
+    }
+
+    @Override
+    public byte[] encode(BufferedImage image) throws IOException {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        if (bgr.getWidth() < width || bgr.getHeight() < height) {
+            bgr = new BufferedImage(
+                    Math.max(width, bgr.getWidth()),
+                    Math.max(height, bgr.getHeight()),
+                    BufferedImage.TYPE_3BYTE_BGR);
+        }
+        final Graphics2D g2d = bgr.createGraphics();
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        final BufferedImage converted = (bgr.getWidth() == width && bgr.getHeight() == height)
+                ? bgr
+                : bgr.getSubimage(0, 0, width, height);
+
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        out.reset();
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(converted, null, null), param);
+        } finally {
+            writer.setOutput(null);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public int[] decode(byte[] data, int width, int height) throws IOException {
+        final BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+        if (image == null || image.getWidth() < width || image.getHeight() < height) {
+            throw new IOException("Invalid JPEG image of " + data.length + " bytes");
+        }
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+}
@@ -4,28 +4,52 @@ import com.google.inject.Inject;
 import controller.ChatFunctionalities;
 import model.*;
 import model.Event;
+import model.Frame;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import util.LatestValueQueue;
 import util.Utils;
+import util.image.FramePacer;
 import util.image.ScreenLiveStream;
+import util.image.ScrollDetector;
+import util.image.TileCache;
+import util.image.TileEncoder;
 
 import java.awt.*;
 import java.awt.event.InputEvent;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
 
 public class ScreenLiveStreamImpl implements ScreenLiveStream {
 
     private static final Logger logger = LogManager.getLogger(ScreenLiveStreamImpl.class);
 
-    private static final String IMAGE_FORMAT = "gif";
+    //Time between two full images of the screen, which also bring up to date a viewer that missed some, in ms.
+    private static final long KEYFRAME_INTERVAL = 10000;
+    //Scaled images reused from a capture to the next : one being drawn, one waiting for the encoder and one encoded.
+    private static final int SCALED_IMAGES = 3;
 
     @Inject private ChatFunctionalities controller;
 
     private ScreenInformation destinationScreen;
-    private boolean isStreaming = false;
-
+    private volatile boolean isStreaming = false;
+    private volatile FramePacer pacer;
 
+    /**
+     * Streams the screen through three stages, each on its own Thread: capture, encoding and sending.
+     *
+     * The stages are connected by latest-wins queues, so that the slowest one sets the frame rate and the others
+     * skip the frames it cannot keep up with instead of queuing them. Captures are simply replaced, the frames
+     * waiting to be sent are merged since a partial frame only makes sense over the ones before it.
+     */
     @Override
     public void startStreaming(User destination, ScreenInformation screenInformation) throws IOException, AWTException {
         logger.info("Streaming started");
@@ -37,22 +61,183 @@ public class ScreenLiveStreamImpl implements ScreenLiveStream {
 
         boolean resize = !(screenInformation.getWidth() == screen.width &&
                 screenInformation.getHeight() == screen.height);
+        //The encoding is chosen once for the whole session, its quality and the frame rate follow the viewer.
+        final TileEncoder encoder = new TileEncoder(Utils.getScreenEncoding());
+        final FramePacer pacer = new FramePacer(Utils.getScreenJpegQuality());
+        this.pacer = pacer;
+
+        //The scaled images go back to the pool once encoded or skipped, the captures of Robot cannot be reused.
+        final BlockingQueue<BufferedImage> scaledImages = new ArrayBlockingQueue<>(SCALED_IMAGES);
+        for (int i = 0; resize && i < SCALED_IMAGES; i++) {
+            scaledImages.add(new BufferedImage(
+                    screenInformation.getWidth(),
+                    screenInformation.getHeight(),
+                    BufferedImage.TYPE_INT_RGB));
+        }
+        final Consumer<BufferedImage> release = image -> {
+            if (resize) scaledImages.offer(image);
+        };
 
-        while (isStreaming) {
-            bi = robot.createScreenCapture(screen);
-            if (resize) {
-                bi = Utils.resize(bi, screenInformation.getWidth(), screenInformation.getHeight());
+        final LatestValueQueue<BufferedImage> captures = new LatestValueQueue<>((pending, offered) -> {
+            release.accept(pending);
+            return offered;
+        });
+        final LatestValueQueue<List<Frame>> frames = new LatestValueQueue<>(ScreenLiveStreamImpl::mergeFrames);
+        new Thread(() -> encode(encoder, pacer, captures, release, frames)).start();
+        new Thread(() -> send(destination, pacer, frames)).start();
+
+        try {
+            while (isStreaming) {
+                pacer.awaitNextFrame();
+                bi = robot.createScreenCapture(screen);
+                if (resize) {
+                    bi = Utils.resize(bi, scaledImages.take());
+                }
+                captures.offer(bi);
             }
-            controller.sendFrame(destination, IFrame.newInstance(Utils.toByteArray(bi, IMAGE_FORMAT)));
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage());
+        } finally {
+            captures.close();
+        }
+    }
 
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                logger.error(e.getMessage());
+    private void encode(TileEncoder encoder, FramePacer pacer, LatestValueQueue<BufferedImage> captures,
+                        Consumer<BufferedImage> release, LatestValueQueue<List<Frame>> frames) {
+        //Pixels of the previous capture encoded, the tiles that are the same in the next one are not sent.
+        //Both arrays are swapped from a capture to the next.
+        int[] pixels = null;
+        int[] previous = null;
+        long sequenceNumber = 0;
+        long lastKeyFrameTime = 0;
+        try {
+            BufferedImage bi;
+            while ((bi = captures.take()) != null) {
+                if (pixels == null || pixels.length != bi.getWidth() * bi.getHeight()) {
+                    pixels = new int[bi.getWidth() * bi.getHeight()];
+                }
+                bi.getRGB(0, 0, bi.getWidth(), bi.getHeight(), pixels, 0, bi.getWidth());
+                final long now = System.currentTimeMillis();
+                if (previous == null || now - lastKeyFrameTime >= KEYFRAME_INTERVAL) {
+                    final List<Tile> tiles = encoder.encode(bi, pixels, null, pacer.getQuality());
+                    logger.debug("Key frame encoded in " + (System.currentTimeMillis() - now) + " ms");
+                    frames.offer(Collections.singletonList(IFrame.newInstance(
+                            sequenceNumber++, encoder.getEncoding(), bi.getWidth(), bi.getHeight(), tiles)));
+                    lastKeyFrameTime = now;
+                } else {
+                    //A frame copying pixels cannot be merged with the ones before, the scrolls are only looked for
+                    //once they are sent. The tiles are then compared to the previous capture as the viewer has it.
+                    final CopyRect copy = frames.isEmpty()
+                            ? ScrollDetector.detect(pixels, previous, bi.getWidth(), bi.getHeight())
+                            : null;
+                    if (copy != null) ScrollDetector.apply(copy, previous, bi.getWidth());
+                    final List<Tile> tiles = encoder.encode(bi, pixels, previous, pacer.getQuality());
+                    //Nothing is sent, nor acknowledged, while the screen does not change.
+                    if (copy != null || !tiles.isEmpty()) {
+                        frames.offer(Collections.singletonList(PFrame.newInstance(sequenceNumber++,
+                                encoder.getEncoding(),
+                                copy == null ? Collections.emptyList() : Collections.singletonList(copy),
+                                tiles)));
+                    }
+                }
+                release.accept(bi);
+                final int[] swapped = previous;
+                previous = pixels;
+                pixels = swapped;
+            }
+        } catch (InterruptedException | IOException e) {
+            logger.error("Screen encoding stopped : " + e.getMessage());
+            isStreaming = false;
+        } finally {
+            frames.close();
+            logger.debug(captures.getDropped() + " captures skipped by the encoder");
+        }
+    }
+
+    private void send(User destination, FramePacer pacer, LatestValueQueue<List<Frame>> frames) {
+        //Only the frames actually sent go through the cache, so that it stays the same as the viewer's.
+        final TileCache<Boolean> cache = new TileCache<>();
+        long bytesSaved = 0;
+        try {
+            List<Frame> pending;
+            while ((pending = frames.take()) != null) {
+                for (Frame frame : pending) {
+                    final int length = getLength(frame);
+                    final Frame sent = referenceCachedTiles(frame, cache);
+                    bytesSaved += length - getLength(sent);
+                    pacer.frameSent(sent.getSequenceNumber(), getLength(sent));
+                    controller.sendFrame(destination, sent);
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage());
+        }
+        logger.debug(frames.getDropped() + " frames merged before being sent");
+        logger.info("Tile cache : " + cache.getHits() + " hits, " + bytesSaved + " bytes saved");
+    }
+
+    /**
+     * Replaces the tiles already sent by references, the cache is cleared at every key frame.
+     */
+    private static Frame referenceCachedTiles(Frame frame, TileCache<Boolean> cache) {
+        if (frame instanceof IFrame) cache.clear();
+        final List<Tile> tiles = new ArrayList<>(frame.getTiles().size());
+        for (Tile tile : frame.getTiles()) {
+            if (cache.get(tile.getHash()) != null) {
+                tiles.add(tile.toReference());
+            } else {
+                cache.put(tile.getHash(), Boolean.TRUE);
+                tiles.add(tile);
             }
+        }
+        if (frame instanceof IFrame) {
+            final IFrame keyFrame = (IFrame)frame;
+            return IFrame.newInstance(keyFrame.getSequenceNumber(), keyFrame.getEncoding(),
+                    keyFrame.getWidth(), keyFrame.getHeight(), tiles);
+        }
+        return PFrame.newInstance(frame.getSequenceNumber(), frame.getEncoding(),
+                ((PFrame)frame).getCopies(), tiles);
+    }
 
-            System.gc();
+    /**
+     * Appends frames to the ones waiting to be sent: a key frame replaces them all and the tiles of consecutive
+     * partial frames are merged, the latest image of a tile replacing the previous one. A partial frame copying
+     * pixels is appended, its copies have to be applied after the tiles before it.
+     */
+    private static List<Frame> mergeFrames(List<Frame> pending, List<Frame> offered) {
+        final List<Frame> merged = new ArrayList<>(pending);
+        for (Frame frame : offered) {
+            final Frame last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (frame instanceof IFrame) {
+                merged.clear();
+                merged.add(frame);
+            } else if (last instanceof PFrame && ((PFrame)frame).getCopies().isEmpty()) {
+                merged.set(merged.size() - 1, mergeTiles((PFrame)last, (PFrame)frame));
+            } else {
+                merged.add(frame);
+            }
         }
+        return merged;
+    }
+
+    private static PFrame mergeTiles(PFrame previous, PFrame next) {
+        final Map<Long, Tile> tiles = new LinkedHashMap<>();
+        for (Tile tile : previous.getTiles()) {
+            tiles.put((long)tile.getX() << 32 | tile.getY(), tile);
+        }
+        for (Tile tile : next.getTiles()) {
+            tiles.put((long)tile.getX() << 32 | tile.getY(), tile);
+        }
+        return PFrame.newInstance(next.getSequenceNumber(), next.getEncoding(),
+                previous.getCopies(), new ArrayList<>(tiles.values()));
+    }
+
+    private static int getLength(Frame frame) {
+        int length = 0;
+        for (Tile tile : frame.getTiles()) {
+            if (!tile.isReference()) length += tile.getImage().length;
+        }
+        return length;
     }
 
     @Override
@@ -61,7 +246,7 @@ public class ScreenLiveStreamImpl implements ScreenLiveStream {
             MouseEvent mouseEvent = (MouseEvent)event;
             int mouseX = (int)mouseEvent.getPosX()*Utils.getScreenWidth()/destinationScreen.getWidth();
             int mouseY = (int)mouseEvent.getPosY()*Utils.getScreenHeight()/destinationScreen.getHeight();
-            System.err.println("MouseX : " + mouseX +", MouseY : " + mouseY);
+            logger.debug("MouseX : " + mouseX +", MouseY : " + mouseY);
             try {
                 Robot robot = new Robot();
                 switch (mouseEvent.getEventType()) {
@@ -88,6 +273,12 @@ public class ScreenLiveStreamImpl implements ScreenLiveStream {
         }
     }
 
+    @Override
+    public void frameAcknowledged(FrameAck frameAck) {
+        final FramePacer pacer = this.pacer;
+        if (pacer != null) pacer.frameAcknowledged(frameAck.getSequenceNumber());
+    }
+
     @Override
     public void stopStreaming() {
         isStreaming = false;
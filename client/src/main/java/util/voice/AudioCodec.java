@@ -0,0 +1,36 @@
+package util.voice;
+
+import model.enums.AudioCodecType;
+
+/**
+ * Compresses voice captured as mono, 16 bits signed, little-endian PCM samples. Every encoded block can be decoded
+ * on its own, so that each audio chunk stays independent from the others.
+ */
+public interface AudioCodec {
+
+    AudioCodecType getType();
+
+    /**
+     * @return The maximum number of samples whose encoding fits in the given number of bytes.
+     */
+    int getMaxSamples(int encodedBytes);
+
+    byte[] encode(byte[] pcm, int length);
+
+    /**
+     * @return The size in bytes of the given block once decoded.
+     */
+    int getDecodedLength(byte[] data);
+
+    /**
+     * Decodes a block into the given buffer, so that it can be reused from a block to the next.
+     * @return The number of bytes written, the buffer has to hold at least getDecodedLength(data) of them.
+     */
+    int decode(byte[] data, byte[] pcm);
+
+    default byte[] decode(byte[] data) {
+        final byte[] pcm = new byte[getDecodedLength(data)];
+        decode(data, pcm);
+        return pcm;
+    }
+}
@@ -0,0 +1,23 @@
+package util.voice;
+
+import model.enums.AudioCodecType;
+import util.voice.impl.ImaAdpcmCodec;
+import util.voice.impl.MuLawCodec;
+import util.voice.impl.PcmCodec;
+
+public class AudioCodecs {
+
+    private AudioCodecs() {}
+
+    public static AudioCodec newCodec(AudioCodecType codecType) {
+        switch (codecType) {
+            case MU_LAW:
+                return new MuLawCodec();
+            case IMA_ADPCM:
+                return new ImaAdpcmCodec();
+            case PCM:
+            default:
+                return new PcmCodec();
+        }
+    }
+}
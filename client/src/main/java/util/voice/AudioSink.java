@@ -0,0 +1,18 @@
+package util.voice;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Destination of the audio played, a speaker or any synthetic sink.
+ */
+public interface AudioSink {
+
+    void open(AudioFormat format, int bufferSize) throws LineUnavailableException;
+
+    /**
+     * Blocks while the buffer of the sink is full, so that the audio is written at the pace it is played.
+     */
+    void write(byte[] buffer, int offset, int length);
+    void close();
+}
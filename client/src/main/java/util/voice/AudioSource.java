@@ -0,0 +1,19 @@
+package util.voice;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Source of the captured audio, a microphone or any synthetic source.
+ */
+public interface AudioSource {
+
+    void open(AudioFormat format) throws LineUnavailableException;
+
+    /**
+     * Blocks until the given number of bytes is captured, unless the source is closed meanwhile.
+     * @return The number of bytes read.
+     */
+    int read(byte[] buffer, int offset, int length);
+    void close();
+}
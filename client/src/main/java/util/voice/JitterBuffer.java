@@ -0,0 +1,111 @@
+package util.voice;
+
+import model.VoiceFrame;
+
+import java.util.TreeMap;
+
+/**
+ * Reorders the voice frames of a call and releases them at the pace they are played, so that the irregular delays
+ * of the network are absorbed. Frames missing when their turn comes are concealed from the last one played.
+ */
+public class JitterBuffer {
+
+    //Number of frames buffered before the playout starts or restarts.
+    public static final int TARGET_DEPTH = 3;
+    //Beyond this number of frames the delay has drifted too much, the oldest frames are skipped.
+    public static final int MAX_DEPTH = 10;
+    //Number of consecutive frames concealed before falling silent and waiting for the buffer to fill up again.
+    public static final int MAX_CONCEALED_FRAMES = 5;
+
+    private final AudioCodec codec;
+    private final int frameSize;
+    private final TreeMap<Long, byte[]> frames = new TreeMap<>();
+
+    //Sequence number of the next frame to play, or -1 while buffering.
+    private long nextSequenceNumber = -1;
+    //Frames before this one were already played or skipped.
+    private long minSequenceNumber = 0;
+    private byte[] lastFrame;
+    private int concealedFrames = 0;
+
+    /**
+     * @param codec The codec used to decode the frames.
+     * @param frameSize The size of a decoded frame, in bytes.
+     */
+    public JitterBuffer(AudioCodec codec, int frameSize) {
+        this.codec = codec;
+        this.frameSize = frameSize;
+    }
+
+    /**
+     * @return false if the frame arrived too late to be played or was already received.
+     */
+    public synchronized boolean add(VoiceFrame frame) {
+        final long sequenceNumber = frame.getSequenceNumber();
+        if (sequenceNumber < minSequenceNumber || frames.containsKey(sequenceNumber)) return false;
+
+        frames.put(sequenceNumber, frame.getData());
+        if (frames.size() > MAX_DEPTH) {
+            while (frames.size() > TARGET_DEPTH) {
+                frames.pollFirstEntry();
+            }
+            minSequenceNumber = frames.firstKey();
+            if (nextSequenceNumber >= 0) nextSequenceNumber = minSequenceNumber;
+        }
+        return true;
+    }
+
+    /**
+     * @return The decoded audio of the next frame, its concealment if it is missing, or silence while buffering.
+     */
+    public synchronized byte[] next() {
+        if (nextSequenceNumber < 0) {
+            if (frames.size() < TARGET_DEPTH) return new byte[frameSize];
+            nextSequenceNumber = frames.firstKey();
+        }
+
+        final byte[] data = frames.remove(nextSequenceNumber);
+        nextSequenceNumber++;
+        minSequenceNumber = nextSequenceNumber;
+        //An empty frame starts a silence, during which the sender stops sending frames.
+        if (data != null && data.length == 0) {
+            lastFrame = null;
+            concealedFrames = 0;
+            return new byte[frameSize];
+        }
+        if (data != null) {
+            lastFrame = codec.decode(data);
+            concealedFrames = 0;
+            return lastFrame;
+        }
+        return conceal();
+    }
+
+    /**
+     * Repeats the last frame played while fading it out, then goes back to buffering if the frames keep missing.
+     */
+    private byte[] conceal() {
+        concealedFrames++;
+        if (lastFrame == null || concealedFrames > MAX_CONCEALED_FRAMES) {
+            if (frames.isEmpty()) {
+                nextSequenceNumber = -1;
+                lastFrame = null;
+            }
+            return new byte[frameSize];
+        }
+
+        final byte[] frame = new byte[lastFrame.length];
+        final int gain = MAX_CONCEALED_FRAMES - concealedFrames;
+        for (int i = 0; i + 1 < frame.length; i += 2) {
+            final int sample = (short) ((lastFrame[i] & 0xFF) | (lastFrame[i + 1] << 8));
+            final int concealed = sample * gain / MAX_CONCEALED_FRAMES;
+            frame[i] = (byte) concealed;
+            frame[i + 1] = (byte) (concealed >> 8);
+        }
+        return frame;
+    }
+
+    public synchronized int size() {
+        return frames.size();
+    }
+}
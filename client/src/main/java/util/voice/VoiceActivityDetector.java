@@ -0,0 +1,63 @@
+package util.voice;
+
+/**
+ * Tells speech from silence in blocks of mono, 16 bits signed, little-endian PCM samples, from their energy compared
+ * to an estimate of the background noise and from their zero-crossing rate.
+ */
+public class VoiceActivityDetector {
+
+    //Energy of a block, relative to the noise, above which it is considered as speech.
+    private static final double SPEECH_TO_NOISE_RATIO = 4;
+    //Unvoiced sounds (such as "s" or "f") are quiet but cross zero often, they only need a lower energy.
+    private static final double UNVOICED_TO_NOISE_RATIO = 2;
+    private static final double UNVOICED_ZERO_CROSSING_RATE = 0.3;
+    //Energy below which a block is always silent, whatever the noise (an amplitude of about 100).
+    private static final double MIN_SPEECH_ENERGY = 10000;
+    //Weight of a silent block in the estimate of the noise.
+    private static final double NOISE_ADAPTATION = 0.05;
+    //Time during which the blocks following speech are still considered as speech, to keep the ends of words.
+    private static final int HANGOVER_MILLIS = 300;
+
+    private final int hangoverSamples;
+    //Starts low enough for the speech at the start of a recording to be detected, it falls with the first silences.
+    private double noiseEnergy = MIN_SPEECH_ENERGY / SPEECH_TO_NOISE_RATIO;
+    private int remainingHangover = 0;
+
+    public VoiceActivityDetector(int sampleRate) {
+        this.hangoverSamples = sampleRate * HANGOVER_MILLIS / 1000;
+    }
+
+    public boolean isSpeech(byte[] pcm, int length) {
+        final int samples = length / 2;
+        if (samples == 0) return false;
+
+        double energy = 0;
+        int zeroCrossings = 0;
+        int previous = 0;
+        for (int i = 0; i < samples; i++) {
+            final int sample = (short) ((pcm[2 * i] & 0xFF) | (pcm[2 * i + 1] << 8));
+            energy += (double) sample * sample;
+            if (i > 0 && (sample >= 0) != (previous >= 0)) zeroCrossings++;
+            previous = sample;
+        }
+        energy /= samples;
+        final double zeroCrossingRate = (double) zeroCrossings / samples;
+
+        final boolean isVoiced = energy > noiseEnergy * SPEECH_TO_NOISE_RATIO;
+        final boolean isUnvoiced = energy > noiseEnergy * UNVOICED_TO_NOISE_RATIO
+                && zeroCrossingRate > UNVOICED_ZERO_CROSSING_RATE;
+        final boolean isSpeech = energy > MIN_SPEECH_ENERGY && (isVoiced || isUnvoiced);
+
+        if (isSpeech) {
+            remainingHangover = hangoverSamples;
+            return true;
+        }
+        //The noise follows the silent blocks, and drops at once when it gets quieter.
+        noiseEnergy = Math.min(energy, noiseEnergy * (1 - NOISE_ADAPTATION) + energy * NOISE_ADAPTATION);
+        if (remainingHangover > 0) {
+            remainingHangover -= samples;
+            return true;
+        }
+        return false;
+    }
+}
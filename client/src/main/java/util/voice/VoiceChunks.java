@@ -0,0 +1,42 @@
+package util.voice;
+
+/**
+ * Tags the chunks of a voice message with silence suppression : a chunk either holds an encoded block of voice, or
+ * the number of samples of a run of silence which is not sent.
+ */
+public class VoiceChunks {
+
+    public static final int HEADER_SIZE = 1;
+
+    private static final byte VOICE = 0;
+    private static final byte SILENCE = 1;
+
+    private VoiceChunks() {}
+
+    public static byte[] voice(byte[] block) {
+        final byte[] chunk = new byte[HEADER_SIZE + block.length];
+        chunk[0] = VOICE;
+        System.arraycopy(block, 0, chunk, HEADER_SIZE, block.length);
+        return chunk;
+    }
+
+    public static byte[] silence(int samples) {
+        return new byte[] {
+                SILENCE, (byte) (samples >> 24), (byte) (samples >> 16), (byte) (samples >> 8), (byte) samples
+        };
+    }
+
+    public static boolean isSilence(byte[] chunk) {
+        return chunk.length > 0 && chunk[0] == SILENCE;
+    }
+
+    public static int getSilentSamples(byte[] chunk) {
+        return ((chunk[1] & 0xFF) << 24) | ((chunk[2] & 0xFF) << 16) | ((chunk[3] & 0xFF) << 8) | (chunk[4] & 0xFF);
+    }
+
+    public static byte[] getBlock(byte[] chunk) {
+        final byte[] block = new byte[chunk.length - HEADER_SIZE];
+        System.arraycopy(chunk, HEADER_SIZE, block, 0, block.length);
+        return block;
+    }
+}
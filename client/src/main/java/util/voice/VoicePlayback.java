@@ -1,6 +1,15 @@
 package util.voice;
 
+import model.AudioDescriptor;
+import model.CallInformation;
+import model.VoiceFrame;
+import util.ChunkAssembler;
+
 public interface VoicePlayback {
 
     void playAudio(byte[] audio);
+    void playAudio(AudioDescriptor audioDescriptor, ChunkAssembler chunks);
+    void startCall(CallInformation callInformation);
+    void playVoiceFrame(VoiceFrame frame);
+    void endCall();
 }
@@ -1,9 +1,12 @@
 package util.voice;
 
+import model.CallInformation;
 import model.User;
 
 public interface VoiceRecorder {
 
-    void captureAudio();
-    void endRecording(User destination);
+    void captureAudio(User destination);
+    void endRecording();
+    void captureCall(CallInformation callInformation);
+    void endCall();
 }
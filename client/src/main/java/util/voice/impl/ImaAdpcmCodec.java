@@ -0,0 +1,122 @@
+package util.voice.impl;
+
+import model.enums.AudioCodecType;
+import util.voice.AudioCodec;
+
+/**
+ * IMA ADPCM, every sample is compressed to 4 bits. A block starts with a header holding its first sample, the step
+ * index of the predictor and whether its last nibble is padding, so that it can be decoded on its own.
+ */
+public class ImaAdpcmCodec implements AudioCodec {
+
+    private static final int HEADER_SIZE = 4;
+    private static final int[] INDEX_TABLE = {-1, -1, -1, -1, 2, 4, 6, 8, -1, -1, -1, -1, 2, 4, 6, 8};
+    private static final int[] STEP_TABLE = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45, 50, 55, 60, 66, 73, 80, 88,
+            97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307, 337, 371, 408, 449, 494, 544, 598, 658,
+            724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066, 2272, 2499, 2749, 3024, 3327, 3660,
+            4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899, 15289, 16818,
+            18500, 20350, 22385, 24623, 27086, 29794, 32767
+    };
+
+    //The step index is carried from a block to the next one to spare the adaptation at the start of each block.
+    private int stepIndex = 0;
+
+    @Override
+    public AudioCodecType getType() {
+        return AudioCodecType.IMA_ADPCM;
+    }
+
+    @Override
+    public int getMaxSamples(int encodedBytes) {
+        return Math.max(0, (encodedBytes - HEADER_SIZE) * 2 + 1);
+    }
+
+    @Override
+    public byte[] encode(byte[] pcm, int length) {
+        final int samples = length / 2;
+        if (samples == 0) return new byte[0];
+
+        int predictor = (short) ((pcm[0] & 0xFF) | (pcm[1] << 8));
+        int index = stepIndex;
+        final byte[] data = new byte[HEADER_SIZE + samples / 2];
+        data[0] = (byte) predictor;
+        data[1] = (byte) (predictor >> 8);
+        data[2] = (byte) index;
+        data[3] = (byte) ((samples % 2 == 0) ? 1 : 0);
+
+        for (int i = 1; i < samples; i++) {
+            final int sample = (short) ((pcm[2 * i] & 0xFF) | (pcm[2 * i + 1] << 8));
+            int step = STEP_TABLE[index];
+            int diff = sample - predictor;
+            int nibble = 0;
+            if (diff < 0) {
+                nibble = 8;
+                diff = -diff;
+            }
+            if (diff >= step) {
+                nibble |= 4;
+                diff -= step;
+            }
+            step >>= 1;
+            if (diff >= step) {
+                nibble |= 2;
+                diff -= step;
+            }
+            step >>= 1;
+            if (diff >= step) {
+                nibble |= 1;
+            }
+
+            //The encoder follows the decoder to avoid drifting from it.
+            predictor = nextPredictor(predictor, index, nibble);
+            index = nextIndex(index, nibble);
+
+            final int position = HEADER_SIZE + (i - 1) / 2;
+            data[position] |= ((i - 1) % 2 == 0) ? nibble : nibble << 4;
+        }
+        stepIndex = index;
+        return data;
+    }
+
+    @Override
+    public int getDecodedLength(byte[] data) {
+        if (data.length < HEADER_SIZE) return 0;
+        return (1 + (data.length - HEADER_SIZE) * 2 - ((data[3] != 0) ? 1 : 0)) * 2;
+    }
+
+    @Override
+    public int decode(byte[] data, byte[] pcm) {
+        if (data.length < HEADER_SIZE) return 0;
+
+        int predictor = (short) ((data[0] & 0xFF) | (data[1] << 8));
+        int index = Math.min(Math.max(data[2], 0), STEP_TABLE.length - 1);
+        final int samples = getDecodedLength(data) / 2;
+        pcm[0] = (byte) predictor;
+        pcm[1] = (byte) (predictor >> 8);
+
+        for (int i = 1; i < samples; i++) {
+            final int b = data[HEADER_SIZE + (i - 1) / 2];
+            final int nibble = ((i - 1) % 2 == 0) ? b & 0x0F : (b >> 4) & 0x0F;
+            predictor = nextPredictor(predictor, index, nibble);
+            index = nextIndex(index, nibble);
+            pcm[2 * i] = (byte) predictor;
+            pcm[2 * i + 1] = (byte) (predictor >> 8);
+        }
+        return samples * 2;
+    }
+
+    private static int nextPredictor(int predictor, int index, int nibble) {
+        final int step = STEP_TABLE[index];
+        int diff = step >> 3;
+        if ((nibble & 4) != 0) diff += step;
+        if ((nibble & 2) != 0) diff += step >> 1;
+        if ((nibble & 1) != 0) diff += step >> 2;
+        predictor += ((nibble & 8) != 0) ? -diff : diff;
+        return Math.min(Math.max(predictor, Short.MIN_VALUE), Short.MAX_VALUE);
+    }
+
+    private static int nextIndex(int index, int nibble) {
+        return Math.min(Math.max(index + INDEX_TABLE[nibble], 0), STEP_TABLE.length - 1);
+    }
+}
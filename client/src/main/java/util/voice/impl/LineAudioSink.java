@@ -0,0 +1,30 @@
+package util.voice.impl;
+
+import util.voice.AudioSink;
+
+import javax.sound.sampled.*;
+
+public class LineAudioSink implements AudioSink {
+
+    private SourceDataLine line;
+
+    @Override
+    public void open(AudioFormat format, int bufferSize) throws LineUnavailableException {
+        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+        line = (SourceDataLine) AudioSystem.getLine(info);
+        line.open(format, bufferSize);
+        line.start();
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+        line.write(buffer, offset, length);
+    }
+
+    @Override
+    public void close() {
+        if (line == null) return;
+        line.stop();
+        line.close();
+    }
+}
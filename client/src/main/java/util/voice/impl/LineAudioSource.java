@@ -0,0 +1,30 @@
+package util.voice.impl;
+
+import util.voice.AudioSource;
+
+import javax.sound.sampled.*;
+
+public class LineAudioSource implements AudioSource {
+
+    private TargetDataLine line;
+
+    @Override
+    public void open(AudioFormat format) throws LineUnavailableException {
+        DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
+        line = (TargetDataLine) AudioSystem.getLine(info);
+        line.open(format);
+        line.start();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        return line.read(buffer, offset, length);
+    }
+
+    @Override
+    public void close() {
+        if (line == null) return;
+        line.stop();
+        line.close();
+    }
+}
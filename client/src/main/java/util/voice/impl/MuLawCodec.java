@@ -0,0 +1,71 @@
+package util.voice.impl;
+
+import model.enums.AudioCodecType;
+import util.voice.AudioCodec;
+
+/**
+ * G.711 mu-law, every sample is compressed to a single byte.
+ */
+public class MuLawCodec implements AudioCodec {
+
+    private static final int BIAS = 0x84;
+    private static final int CLIP = 32635;
+    private static final short[] DECODING_TABLE = new short[256];
+
+    static {
+        for (int i = 0; i < DECODING_TABLE.length; i++) {
+            final int code = ~i & 0xFF;
+            final int exponent = (code >> 4) & 0x07;
+            final int magnitude = (((code & 0x0F) << 3) + BIAS) << exponent;
+            DECODING_TABLE[i] = (short) (((code & 0x80) != 0) ? BIAS - magnitude : magnitude - BIAS);
+        }
+    }
+
+    @Override
+    public AudioCodecType getType() {
+        return AudioCodecType.MU_LAW;
+    }
+
+    @Override
+    public int getMaxSamples(int encodedBytes) {
+        return encodedBytes;
+    }
+
+    @Override
+    public byte[] encode(byte[] pcm, int length) {
+        final byte[] data = new byte[length / 2];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = encodeSample((short) ((pcm[2 * i] & 0xFF) | (pcm[2 * i + 1] << 8)));
+        }
+        return data;
+    }
+
+    @Override
+    public int getDecodedLength(byte[] data) {
+        return data.length * 2;
+    }
+
+    @Override
+    public int decode(byte[] data, byte[] pcm) {
+        for (int i = 0; i < data.length; i++) {
+            final short sample = DECODING_TABLE[data[i] & 0xFF];
+            pcm[2 * i] = (byte) sample;
+            pcm[2 * i + 1] = (byte) (sample >> 8);
+        }
+        return data.length * 2;
+    }
+
+    private static byte encodeSample(int sample) {
+        final int sign = (sample < 0) ? 0x80 : 0;
+        if (sample < 0) sample = -sample;
+        if (sample > CLIP) sample = CLIP;
+        sample += BIAS;
+
+        int exponent = 7;
+        for (int mask = 0x4000; (sample & mask) == 0 && exponent > 0; mask >>= 1) {
+            exponent--;
+        }
+        final int mantissa = (sample >> (exponent + 3)) & 0x0F;
+        return (byte) ~(sign | (exponent << 4) | mantissa);
+    }
+}
@@ -1,14 +1,22 @@
 package util.voice.impl;
 
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import model.AudioDescriptor;
+import model.CallInformation;
+import model.VoiceFrame;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import util.ChunkAssembler;
 import util.Utils;
+import util.voice.AudioCodec;
+import util.voice.AudioCodecs;
+import util.voice.AudioSink;
+import util.voice.JitterBuffer;
+import util.voice.VoiceChunks;
 import util.voice.VoicePlayback;
 
 import javax.sound.sampled.*;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
 
 /**
  * Original code from :
@@ -20,47 +28,276 @@ import java.io.InputStream;
 public class VoicePlaybackImpl implements VoicePlayback {
 
     private static final Logger logger = LogManager.getLogger(VoicePlaybackImpl.class);
+    //Number of chunks received in order before the playback starts, to absorb the irregularities of the network.
+    private static final int PREBUFFER_CHUNKS = 2;
+    private static final long CHUNK_POLL_INTERVAL = 1000;
+    //Time without receiving the next chunk after which the audio is considered cancelled.
+    private static final long CHUNK_TIMEOUT = 10000;
+    //Duration of the audio buffered by the output line, which bounds the time a new clip waits for the old one.
+    private static final int LINE_BUFFER_MILLIS = 200;
+    //Time without any clip to play after which the output line is given back to the system.
+    private static final long LINE_IDLE_TIMEOUT = 30000;
+    //Number of frames buffered by the sink during a call, just enough to absorb the scheduling of the playout.
+    private static final int CALL_SINK_FRAMES = 4;
+
+    @Inject
+    private Provider<AudioSink> audioSinks;
+
+    //Jitter buffer of the current call, its playout stops as soon as it is replaced.
+    private volatile JitterBuffer jitterBuffer;
+
+    //Clip waiting to be played, it stops the one playing as soon as it is set.
+    private Clip pendingClip;
+    //Single Thread playing all the clips, one at a time, on a line kept open between them.
+    private Thread playbackWorker;
+    //Written in place of the silences left out by the recorder, only used by the playback worker.
+    private byte[] silence = new byte[0];
 
     /**
-     * Plays the audio corresponding to the given byte array in a new Thread.
+     * Plays the audio corresponding to the given byte array, in place of the one playing.
      * @param audio A byte array containing an audio sound.
      */
     @Override
     public void playAudio(byte[] audio) {
+        final ChunkAssembler chunks = new ChunkAssembler(1);
+        chunks.add(0, audio);
+        this.play(new Clip(Utils.getAudioFormat(), null, false, chunks));
+    }
+
+    /**
+     * Plays the audio while its chunks are received, in place of the one playing. Each chunk is decoded with the
+     * codec it was recorded with, the playback starts as soon as a few chunks are available in order.
+     */
+    @Override
+    public void playAudio(final AudioDescriptor audioDescriptor, final ChunkAssembler chunks) {
+        //Audios without codec are in the default format and played as they are.
+        if (audioDescriptor.getCodecType() == null) {
+            this.play(new Clip(Utils.getAudioFormat(), null, false, chunks));
+            return;
+        }
+        this.play(new Clip(
+                Utils.getVoiceFormat(audioDescriptor.getSampleRate()),
+                AudioCodecs.newCodec(audioDescriptor.getCodecType()),
+                audioDescriptor.isSilenceSuppressed(),
+                chunks));
+    }
+
+    private synchronized void play(Clip clip) {
+        pendingClip = clip;
+        notifyAll();
+        if (playbackWorker == null) {
+            playbackWorker = new Thread(this::runPlayback);
+            playbackWorker.setDaemon(true);
+            playbackWorker.start();
+        }
+    }
+
+    private synchronized Clip takeClip(long timeout) throws InterruptedException {
+        if (pendingClip == null) wait(timeout);
+        final Clip clip = pendingClip;
+        pendingClip = null;
+        return clip;
+    }
+
+    private synchronized boolean isPreempted() {
+        return pendingClip != null;
+    }
+
+    private void runPlayback() {
+        SourceDataLine line = null;
+        //Reused from a chunk to the next, and from a clip to the next.
+        byte[] pcm = new byte[0];
         try {
-            InputStream input = new ByteArrayInputStream(audio);
-            final AudioFormat format = Utils.getAudioFormat();
-            final AudioInputStream ais = new AudioInputStream(input, format, audio.length / format.getFrameSize());
-            DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
-            final SourceDataLine line = (SourceDataLine) AudioSystem.getLine(info);
-            line.open(format);
-            line.start();
-
-            Runnable runner = new Runnable() {
-                int bufferSize = (int) format.getSampleRate() * format.getFrameSize();
-                byte[] buffer = new byte[bufferSize];
-
-                public void run() {
-                    try {
-                        int count;
-                        while ((count = ais.read(buffer, 0, buffer.length)) != -1) {
-                            if (count > 0) {
-                                line.write(buffer, 0, count);
-                            }
-                        }
-                    } catch (IOException e) {
-                        logger.error("IO Error while playing audio : " + e.getMessage());
-                    } finally {
-                        line.drain();
+            while (true) {
+                final Clip clip = takeClip(LINE_IDLE_TIMEOUT);
+                if (clip == null) {
+                    if (line != null) {
                         line.close();
+                        line = null;
                     }
+                    continue;
+                }
+
+                try {
+                    line = getLine(line, clip.format);
+                    pcm = playClip(clip, line, pcm);
+                } catch (LineUnavailableException e) {
+                    logger.error("Line unavailable: " + e.getMessage());
+                    line = null;
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while playing audio : " + e.getMessage());
+        } finally {
+            if (line != null) line.close();
+            synchronized (this) {
+                playbackWorker = null;
+            }
+        }
+    }
+
+    /**
+     * @return The given line if it is in the given format, otherwise a new line once the given one is drained.
+     */
+    private static SourceDataLine getLine(SourceDataLine line, AudioFormat format) throws LineUnavailableException {
+        if (line != null) {
+            if (line.getFormat().matches(format)) return line;
+            line.drain();
+            line.close();
+        }
+
+        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+        final SourceDataLine newLine = (SourceDataLine) AudioSystem.getLine(info);
+        final int frames = (int) (format.getFrameRate() * LINE_BUFFER_MILLIS / 1000);
+        newLine.open(format, Math.max(1, frames) * format.getFrameSize());
+        newLine.start();
+        return newLine;
+    }
+
+    /**
+     * Plays a clip until it ends or another one is pending, in which case the audio still buffered is discarded.
+     * @return The decoding buffer, possibly grown.
+     */
+    private byte[] playClip(Clip clip, SourceDataLine line, byte[] pcm) throws InterruptedException {
+        //Waits for the prebuffer, the chunks stay in the assembler until they are played.
+        long chunkNumber = 0;
+        long lastChunkTime = System.currentTimeMillis();
+        while (chunkNumber < PREBUFFER_CHUNKS && !isEnded(clip.chunks, chunkNumber)) {
+            if (isPreempted()) return pcm;
+            if (clip.chunks.await(chunkNumber, CHUNK_POLL_INTERVAL) != null) {
+                chunkNumber++;
+                lastChunkTime = System.currentTimeMillis();
+            } else if (isTimedOut(clip.chunks, chunkNumber, lastChunkTime)) {
+                return pcm;
+            }
+        }
+
+        chunkNumber = 0;
+        while (!isEnded(clip.chunks, chunkNumber)) {
+            if (isPreempted()) {
+                line.flush();
+                return pcm;
+            }
+            final byte[] data = clip.chunks.await(chunkNumber, CHUNK_POLL_INTERVAL);
+            if (data == null) {
+                if (isTimedOut(clip.chunks, chunkNumber, lastChunkTime)) return pcm;
+                continue;
+            }
+            chunkNumber++;
+            lastChunkTime = System.currentTimeMillis();
+
+            if (clip.codec == null) {
+                write(line, data, data.length);
+                continue;
+            }
+            byte[] block = data;
+            if (clip.isSilenceSuppressed) {
+                if (VoiceChunks.isSilence(data)) {
+                    writeSilence(line, VoiceChunks.getSilentSamples(data) * line.getFormat().getFrameSize());
+                    continue;
                 }
-            };
+                block = VoiceChunks.getBlock(data);
+            }
+            final int length = clip.codec.getDecodedLength(block);
+            if (pcm.length < length) pcm = new byte[length];
+            write(line, pcm, clip.codec.decode(block, pcm));
+        }
+        return pcm;
+    }
 
-            Thread playThread = new Thread(runner);
-            playThread.start();
+    /**
+     * Writes in slices of half the line's buffer, so that a pending clip is noticed without waiting for the whole
+     * chunk to be played.
+     */
+    private void write(SourceDataLine line, byte[] pcm, int length) {
+        final int frameSize = line.getFormat().getFrameSize();
+        final int slice = Math.max(frameSize, line.getBufferSize() / 2 / frameSize * frameSize);
+        for (int offset = 0; offset < length; offset += slice) {
+            if (isPreempted()) {
+                line.flush();
+                return;
+            }
+            line.write(pcm, offset, Math.min(slice, length - offset));
+        }
+    }
+
+    /**
+     * Restores a silence left out by the recorder, so that the voice keeps its timing.
+     */
+    private void writeSilence(SourceDataLine line, int length) {
+        if (silence.length < line.getBufferSize()) silence = new byte[line.getBufferSize()];
+        for (int offset = 0; offset < length && !isPreempted(); offset += silence.length) {
+            write(line, silence, Math.min(silence.length, length - offset));
+        }
+    }
+
+    private static boolean isTimedOut(ChunkAssembler chunks, long chunkNumber, long lastChunkTime) {
+        if (isEnded(chunks, chunkNumber) || System.currentTimeMillis() - lastChunkTime <= CHUNK_TIMEOUT) return false;
+        logger.warn("Audio playback interrupted, no chunk received for " + CHUNK_TIMEOUT + " ms.");
+        return true;
+    }
+
+    /**
+     * Plays the voice frames received during a call in a new Thread, at the pace of the sink.
+     * @param callInformation The format of the frames sent by the peer.
+     */
+    @Override
+    public void startCall(CallInformation callInformation) {
+        final AudioCodec codec = AudioCodecs.newCodec(callInformation.getCodecType());
+        final int frameSize = Utils.getVoiceFrameSize(callInformation.getSampleRate());
+        final AudioSink sink = audioSinks.get();
+        try {
+            sink.open(Utils.getVoiceFormat(callInformation.getSampleRate()), frameSize * CALL_SINK_FRAMES);
         } catch (LineUnavailableException e) {
             logger.error("Line unavailable: " + e.getMessage());
+            return;
+        }
+        final JitterBuffer buffer = new JitterBuffer(codec, frameSize);
+        jitterBuffer = buffer;
+
+        new Thread(() -> {
+            try {
+                //The sink blocks while it is full, the frames are thus taken from the buffer as they are played.
+                while (jitterBuffer == buffer) {
+                    final byte[] frame = buffer.next();
+                    sink.write(frame, 0, frame.length);
+                }
+            } finally {
+                sink.close();
+            }
+        }).start();
+    }
+
+    @Override
+    public void playVoiceFrame(VoiceFrame frame) {
+        final JitterBuffer buffer = jitterBuffer;
+        if (buffer != null && !buffer.add(frame)) {
+            logger.debug("Voice frame dropped : " + frame);
+        }
+    }
+
+    @Override
+    public void endCall() {
+        jitterBuffer = null;
+    }
+
+    private static boolean isEnded(ChunkAssembler chunks, long chunkNumber) {
+        final long chunksTotalNumber = chunks.getChunksTotalNumber();
+        return chunksTotalNumber != ChunkAssembler.UNKNOWN_TOTAL && chunkNumber >= chunksTotalNumber;
+    }
+
+    private static class Clip {
+        private final AudioFormat format;
+        //No codec for the audios in the default format.
+        private final AudioCodec codec;
+        private final boolean isSilenceSuppressed;
+        private final ChunkAssembler chunks;
+
+        private Clip(AudioFormat format, AudioCodec codec, boolean isSilenceSuppressed, ChunkAssembler chunks) {
+            this.format = format;
+            this.codec = codec;
+            this.isSilenceSuppressed = isSilenceSuppressed;
+            this.chunks = chunks;
         }
     }
 }
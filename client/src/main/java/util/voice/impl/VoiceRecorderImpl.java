@@ -1,19 +1,24 @@
 package util.voice.impl;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 import controller.ChatFunctionalities;
+import model.AudioContent;
+import model.CallInformation;
 import model.User;
+import model.VoiceFrame;
 import network.ServerServices;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import util.Utils;
+import util.voice.AudioCodec;
+import util.voice.AudioCodecs;
+import util.voice.AudioSource;
+import util.voice.VoiceActivityDetector;
+import util.voice.VoiceChunks;
 import util.voice.VoiceRecorder;
 
 import javax.sound.sampled.*;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 
 /**
  * Original code from :
@@ -28,45 +33,67 @@ public class VoiceRecorderImpl implements VoiceRecorder {
 
     @Inject
     private ChatFunctionalities controller;
+    @Inject
+    private Provider<AudioSource> audioSources;
 
-    private boolean isRecording = false;
-    private User destination;
+    private volatile boolean isRecording = false;
+    //Source of the current call, its capture stops as soon as it is replaced.
+    private volatile AudioSource callSource;
 
     /**
-     * Captures the audio in a new Thread and sends it to the given destination via the server.
+     * Captures the audio in a new Thread and streams it to the given destination via the server while it is
+     * recorded, so that it is delivered as soon as the recording ends. Every chunk is compressed on its own.
      */
     @Override
-    public void captureAudio() {
+    public void captureAudio(final User destination) {
         try {
-            final AudioFormat format = Utils.getAudioFormat();
+            final int sampleRate = Utils.getVoiceSampleRate();
+            final AudioCodec codec = AudioCodecs.newCodec(Utils.getVoiceCodecType());
+            final AudioFormat format = Utils.getVoiceFormat(sampleRate);
             DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
             final TargetDataLine line = (TargetDataLine) AudioSystem.getLine(info);
             line.open(format);
             line.start();
+
+            final long correlationId = controller.startAudio(destination, codec.getType(), sampleRate);
+            if (correlationId < 0) {
+                line.close();
+                return;
+            }
+            isRecording = true;
             Runnable runner = new Runnable() {
-                int bufferSize = (int)format.getSampleRate() * format.getFrameSize();
+                //Every read is sent as a chunk as soon as it is captured, it fits in one once compressed and tagged.
+                int bufferSize = codec.getMaxSamples(AudioContent.MAX_BYTE_SIZE - VoiceChunks.HEADER_SIZE)
+                        * format.getFrameSize();
                 byte[] buffer = new byte[bufferSize];
+                VoiceActivityDetector detector = new VoiceActivityDetector(sampleRate);
 
                 public void run() {
-                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
-                    isRecording = true;
+                    //Silences are only sent as their length, once the voice resumes or every second at most. The
+                    //silence at the end of the recording is not sent at all.
+                    int silentSamples = 0;
                     try {
                         while (isRecording) {
                             int count = line.read(buffer, 0, buffer.length);
-                            if (count > 0) {
-                                out.write(buffer, 0, count);
+                            if (count <= 0) continue;
+                            if (!detector.isSpeech(buffer, count)) {
+                                silentSamples += count / format.getFrameSize();
+                                if (silentSamples >= sampleRate) {
+                                    controller.sendAudioChunk(correlationId, VoiceChunks.silence(silentSamples));
+                                    silentSamples = 0;
+                                }
+                                continue;
+                            }
+                            if (silentSamples > 0) {
+                                controller.sendAudioChunk(correlationId, VoiceChunks.silence(silentSamples));
+                                silentSamples = 0;
                             }
+                            controller.sendAudioChunk(correlationId, VoiceChunks.voice(codec.encode(buffer, count)));
                         }
                     } finally {
-                        try {
-                            out.close();
-                            out.flush();
-                            line.close();
-                            line.flush();
-                            controller.sendAudio(destination, out.toByteArray());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
+                        line.stop();
+                        line.close();
+                        controller.endAudio(correlationId);
                     }
                 }
             };
@@ -81,8 +108,56 @@ public class VoiceRecorderImpl implements VoiceRecorder {
     }
 
     @Override
-    public void endRecording(User destination) {
+    public void endRecording() {
         isRecording = false;
-        this.destination = destination;
+    }
+
+    /**
+     * Captures the voice in a new Thread, in frames sent to the call or the room as soon as they are captured. Every
+     * frame is compressed on its own, so that a lost frame does not affect the others.
+     * @param callInformation The format of the frames sent.
+     */
+    @Override
+    public void captureCall(final CallInformation callInformation) {
+        final int sampleRate = callInformation.getSampleRate();
+        final AudioCodec codec = AudioCodecs.newCodec(callInformation.getCodecType());
+        final AudioSource source = audioSources.get();
+        try {
+            source.open(Utils.getVoiceFormat(sampleRate));
+        } catch (LineUnavailableException e) {
+            logger.error("Line unavailable: " + e.getMessage());
+            return;
+        }
+        callSource = source;
+
+        new Thread(() -> {
+            final byte[] buffer = new byte[Utils.getVoiceFrameSize(sampleRate)];
+            final VoiceActivityDetector detector = new VoiceActivityDetector(sampleRate);
+            long sequenceNumber = 0;
+            boolean isSilent = false;
+            try {
+                while (callSource == source) {
+                    final int count = source.read(buffer, 0, buffer.length);
+                    if (count <= 0) continue;
+                    //Only the first frame of a silence is sent, empty, the skipped sequence numbers keep the timing.
+                    if (detector.isSpeech(buffer, count)) {
+                        final byte[] data = codec.encode(buffer, count);
+                        controller.sendVoiceFrame(VoiceFrame.newInstance(sequenceNumber, data));
+                        isSilent = false;
+                    } else if (!isSilent) {
+                        controller.sendVoiceFrame(VoiceFrame.newInstance(sequenceNumber, new byte[0]));
+                        isSilent = true;
+                    }
+                    sequenceNumber++;
+                }
+            } finally {
+                source.close();
+            }
+        }).start();
+    }
+
+    @Override
+    public void endCall() {
+        callSource = null;
     }
 }
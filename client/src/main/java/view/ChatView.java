@@ -20,6 +20,7 @@ public interface ChatView extends Initializable {
     void uploadFile(ActionEvent event);
     void fileSent(MessageContainer fileMessage);
     void requestFile(User source, long fileId);
+    void cancelTransfers(ActionEvent event);
 
     void startRecording(ActionEvent event);
     void stopRecording(ActionEvent event);
@@ -27,4 +28,14 @@ public interface ChatView extends Initializable {
     void requestAudio(User source, long audioId);
 
     void requestControl(ActionEvent event);
+
+    void startCall(ActionEvent event);
+    void endCall(ActionEvent event);
+    void callRequested(User source);
+    void callStarted(User peer);
+    void callEnded();
+
+    void toggleRoom(ActionEvent event);
+    void roomJoined(String name);
+    void roomLeft();
 }
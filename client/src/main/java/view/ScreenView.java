@@ -7,6 +7,14 @@ import model.Frame;
 public interface ScreenView extends Initializable {
 
     void updateScreen(Frame frame);
+    /**
+     * Ends the current session, the frames still pending are dropped and the next session starts from a key frame.
+     */
+    void clearScreen();
+    /**
+     * Closes the window once the streamer ended the stream.
+     */
+    void closeScreen();
     void clickEvent(MouseEvent event);
     void moveEvent(MouseEvent event);
 }
@@ -8,10 +8,14 @@ import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TextArea;
+import javafx.scene.control.TextInputDialog;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import model.*;
@@ -21,9 +25,11 @@ import view.ChatView;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.ResourceBundle;
 
 public class ChatViewImpl implements ChatView {
@@ -36,6 +42,9 @@ public class ChatViewImpl implements ChatView {
     @FXML private TextArea txtMessage;
     @FXML private Button btnRecordAudio;
     @FXML private Button btnStopRecordAudio;
+    @FXML private Button btnCall;
+    @FXML private Button btnHangUp;
+    @FXML private Button btnRoom;
 
     @Inject private ChatFunctionalities chatController;
 
@@ -43,6 +52,7 @@ public class ChatViewImpl implements ChatView {
     private FileChooser fileChooser;
 
     private User selectedUser;
+    private boolean isInRoom = false;
     private Map<Long, ObservableList<MessageContainer>> conversations = new HashMap<>();
 
 
@@ -50,6 +60,8 @@ public class ChatViewImpl implements ChatView {
     public void initialize(final URL location, final ResourceBundle resources) {
         if (this.listUsers.getItems() == null) this.listUsers.setItems(FXCollections.observableArrayList());
         this.listMessages.setItems(FXCollections.observableArrayList());
+        //Several users can be selected to share a file with all of them at once.
+        this.listUsers.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
         this.listUsers.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
             selectedUser = newValue;
@@ -109,13 +121,20 @@ public class ChatViewImpl implements ChatView {
         //Prompt the user to select a File.
         final File file = fileChooser.showOpenDialog(stage);
 
-        //If the user selected a File (file is not null) then send it to the selected user.
-        if (file != null) {
-            final Thread t = new Thread(() -> chatController.sendFile(selectedUser, file));
+        //If the user selected a File (file is not null) then send it to the selected users.
+        final List<User> destinations = new ArrayList<>(listUsers.getSelectionModel().getSelectedItems());
+        if (file != null && !destinations.isEmpty()) {
+            final Thread t = new Thread(() -> chatController.sendFile(destinations, file));
             t.start();
         }
     }
 
+    @Override
+    public void cancelTransfers(final ActionEvent event) {
+        Thread t = new Thread(chatController::cancelTransfers);
+        t.start();
+    }
+
     @Override
     public void disconnect(final ActionEvent event) {
         //Call the disconnect method of the controller.
@@ -246,8 +265,14 @@ public class ChatViewImpl implements ChatView {
         };
         task.setOnSucceeded(event1 -> {
             final MessageContainer container = task.getValue();
+            final User recipient = container.getUser();
             container.setUser(null);
-            listMessages.getItems().add(container);
+            //Adds the message to the conversation with the recipient, a file can be sent to several users at once.
+            if (recipient != null && conversations.containsKey(recipient.getId())) {
+                conversations.get(recipient.getId()).add(container);
+            } else {
+                listMessages.getItems().add(container);
+            }
         });
         task.setOnFailed(event12 -> logger.info("Adding FileMessage Failed ..."));
 
@@ -265,16 +290,18 @@ public class ChatViewImpl implements ChatView {
 
     @Override
     public void startRecording(ActionEvent event) {
+        //The audio is streamed to the selected user while it is recorded.
+        if (selectedUser == null) return;
         btnRecordAudio.setDisable(true);
         btnStopRecordAudio.setDisable(false);
-        chatController.startRecording();
+        chatController.startRecording(this.selectedUser);
     }
 
     @Override
     public void stopRecording(ActionEvent event) {
         btnRecordAudio.setDisable(false);
         btnStopRecordAudio.setDisable(true);
-        chatController.stopRecording(this.selectedUser);
+        chatController.stopRecording();
     }
 
     @Override
@@ -306,6 +333,124 @@ public class ChatViewImpl implements ChatView {
         chatController.requestControl(this.selectedUser);
     }
 
+    @Override
+    public void startCall(ActionEvent event) {
+        if (selectedUser == null) return;
+        final User destination = selectedUser;
+        btnCall.setDisable(true);
+        btnHangUp.setDisable(false);
+        Thread t = new Thread(() -> chatController.call(destination));
+        t.start();
+    }
+
+    @Override
+    public void endCall(ActionEvent event) {
+        Thread t = new Thread(chatController::hangUp);
+        t.start();
+    }
+
+    @Override
+    public void callRequested(User source) {
+        final Task<User> task = new Task<User>() {
+            @Override
+            protected User call() {
+                return source;
+            }
+        };
+        task.setOnSucceeded(event -> {
+            btnCall.setDisable(true);
+            btnHangUp.setDisable(false);
+            final Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+            alert.setTitle("Call");
+            alert.setHeaderText(source.getName() + " is calling you.");
+            alert.setContentText("Accept the call ?");
+            final Optional<ButtonType> result = alert.showAndWait();
+            final Thread t = (result.isPresent() && result.get() == ButtonType.OK)
+                    ? new Thread(() -> chatController.acceptCall(source))
+                    : new Thread(chatController::hangUp);
+            t.start();
+        });
+        task.setOnFailed(event -> logger.info("Showing Call Request Failed ..."));
+
+        this.startTask(task);
+    }
+
+    @Override
+    public void callStarted(User peer) {
+        logger.info("In call with : " + peer);
+    }
+
+    @Override
+    public void callEnded() {
+        final Task<Void> task = new Task<Void>() {
+            @Override
+            protected Void call() {
+                return null;
+            }
+        };
+        task.setOnSucceeded(event -> {
+            btnCall.setDisable(false);
+            btnHangUp.setDisable(true);
+        });
+        task.setOnFailed(event -> logger.info("Updating UI for Call Ended Failed ..."));
+
+        this.startTask(task);
+    }
+
+    @Override
+    public void toggleRoom(ActionEvent event) {
+        if (isInRoom) {
+            Thread t = new Thread(chatController::leaveRoom);
+            t.start();
+            return;
+        }
+
+        final TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Voice Room");
+        dialog.setHeaderText("Join a voice room.");
+        dialog.setContentText("Room :");
+        final Optional<String> name = dialog.showAndWait();
+        if (!name.isPresent()) return;
+        Thread t = new Thread(() -> chatController.joinRoom(name.get()));
+        t.start();
+    }
+
+    @Override
+    public void roomJoined(String name) {
+        final Task<String> task = new Task<String>() {
+            @Override
+            protected String call() {
+                return name;
+            }
+        };
+        task.setOnSucceeded(event -> {
+            isInRoom = true;
+            btnCall.setDisable(true);
+            btnRoom.setText("Leave " + task.getValue());
+        });
+        task.setOnFailed(event -> logger.info("Updating UI for Room Joined Failed ..."));
+
+        this.startTask(task);
+    }
+
+    @Override
+    public void roomLeft() {
+        final Task<Void> task = new Task<Void>() {
+            @Override
+            protected Void call() {
+                return null;
+            }
+        };
+        task.setOnSucceeded(event -> {
+            isInRoom = false;
+            btnCall.setDisable(false);
+            btnRoom.setText("Room");
+        });
+        task.setOnFailed(event -> logger.info("Updating UI for Room Left Failed ..."));
+
+        this.startTask(task);
+    }
+
     private void startTask(final Task task) {
         Thread t = new Thread(task);
         t.setDaemon(true);
@@ -2,40 +2,298 @@ package view.impl;
 
 import com.google.inject.Inject;
 import controller.ScreenFunctionalities;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
+import model.CopyRect;
 import model.Event;
 import model.Frame;
 import model.IFrame;
+import model.PFrame;
+import model.Tile;
 import model.enums.EventType;
+import model.enums.FrameEncoding;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import util.Utils;
+import util.image.FrameCodec;
+import util.image.FrameCodecs;
+import util.image.TileCache;
 import view.ScreenView;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class ScreenViewImpl implements ScreenView {
 
+    private static final Logger logger = LogManager.getLogger(ScreenViewImpl.class);
+
     @FXML private ImageView imageScreen;
     @Inject private ScreenFunctionalities screenController;
 
+    //Image displayed, the key frames replace all its pixels and the partial frames some of them.
+    private WritableImage screen;
+    //Frames received, decoded in order by their own Thread since a partial frame only applies over the previous one.
+    private final BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+    private Thread decoder;
+    //Codec of the encoding of the last frame, only used by the decoder.
+    private FrameCodec codec;
+    //Pixels of the tiles received, the same as the ones the streamer keeps track of, only used by the decoder.
+    private final TileCache<int[]> cache = new TileCache<>();
+    //Frames decoded and waiting for the JavaFX Thread, the ones decoded meanwhile are merged into it.
+    private ScreenUpdate pendingUpdate;
+    //The same instance controls every window, the frames of a previous window are dropped by the next one.
+    private volatile int session = 0;
+    //Session of the cache and the codec, only used by the decoder.
+    private int decodedSession = 0;
+
+    /**
+     * Called for every new window, which starts a new session.
+     */
     @Override
     public void initialize(URL location, ResourceBundle resources) {
+        clearScreen();
         imageScreen.setPreserveRatio(true);
         imageScreen.setSmooth(true);
         imageScreen.minWidth(Utils.getScreenWidth());
         imageScreen.minHeight(Utils.getScreenHeight());
     }
 
+    //Called by the JavaFX Thread, the decoder resets its own state when it sees the session changed.
+    @Override
+    public void clearScreen() {
+        synchronized (this) {
+            session++;
+            frames.clear();
+            pendingUpdate = null;
+        }
+        screen = null;
+    }
+
+    @Override
+    public void closeScreen() {
+        Platform.runLater(() -> {
+            clearScreen();
+            //Hidden without a close request, the streamer is not told the stream it ended is cancelled.
+            if (imageScreen.getScene() != null && imageScreen.getScene().getWindow() != null) {
+                imageScreen.getScene().getWindow().hide();
+            }
+        });
+    }
+
+    /**
+     * Hands the frame over to the decoder, so that the Thread receiving the frames goes back to reading them.
+     */
     @Override
     public void updateScreen(Frame frame) {
-        if (frame instanceof IFrame) {
-            imageScreen.setImage(new Image(new ByteArrayInputStream(((IFrame)frame).getImage())));
+        frames.add(frame);
+        startDecoder();
+    }
+
+    private synchronized void startDecoder() {
+        if (decoder == null) {
+            decoder = new Thread(this::runDecoder);
+            decoder.setDaemon(true);
+            decoder.start();
+        }
+    }
+
+    private void runDecoder() {
+        try {
+            while (true) {
+                final Frame frame = frames.take();
+                if (decodedSession != session) {
+                    decodedSession = session;
+                    cache.clear();
+                    codec = null;
+                }
+                try {
+                    render(decode(frame));
+                } catch (IOException e) {
+                    logger.error("Frame dropped : " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    private ScreenUpdate decode(Frame frame) throws IOException {
+        final FrameCodec codec = getCodec(frame.getEncoding());
+        final ScreenUpdate update = new ScreenUpdate(frame, decodedSession);
+        if (frame instanceof IFrame) cache.clear();
+        for (Tile tile : frame.getTiles()) {
+            int[] pixels;
+            if (tile.isReference()) {
+                pixels = cache.get(tile.getHash());
+                //Only possible if a frame was lost, the tile is left as it is until the next key frame.
+                if (pixels == null) {
+                    logger.warn("Tile missing from the cache : " + tile);
+                    continue;
+                }
+            } else {
+                pixels = codec.decode(tile.getImage(), tile.getWidth(), tile.getHeight());
+                cache.put(tile.getHash(), pixels);
+            }
+            update.addTile(tile, pixels);
+        }
+        logger.debug(cache.getHits() + " tiles taken from the cache");
+        return update;
+    }
+
+    private FrameCodec getCodec(FrameEncoding encoding) {
+        if (codec == null || codec.getEncoding() != encoding) codec = FrameCodecs.newCodec(encoding);
+        return codec;
+    }
+
+    /**
+     * Only one update at a time waits for the JavaFX Thread, so that a busy display skips the intermediate images
+     * instead of falling behind. Only the latest frame applied is acknowledged, the ones before with it.
+     */
+    private void render(ScreenUpdate update) {
+        synchronized (this) {
+            //Decoded for a window since closed.
+            if (update.session != session) return;
+            if (pendingUpdate != null) {
+                pendingUpdate.merge(update);
+                return;
+            }
+            pendingUpdate = update;
+        }
+        Platform.runLater(() -> {
+            final ScreenUpdate rendered;
+            synchronized (this) {
+                rendered = pendingUpdate;
+                pendingUpdate = null;
+            }
+            if (rendered == null) return;
+            if (rendered.width > 0) resize(rendered.width, rendered.height);
+            for (Step step : rendered.steps) {
+                applyCopies(step.copies);
+                applyTiles(step.tiles.values());
+            }
+            screenController.acknowledgeFrame(rendered.sequenceNumber);
+        });
+    }
+
+    //A key frame covers the whole image, which only has to be replaced when the size of the screen changes.
+    private void resize(int width, int height) {
+        if (screen == null || screen.getWidth() != width || screen.getHeight() != height) {
+            screen = new WritableImage(width, height);
+        }
+        //The window may be new even if the image is not.
+        if (imageScreen.getImage() != screen) imageScreen.setImage(screen);
+    }
+
+    //The pixels that moved are copied before the tiles, which cover the parts of the screen newly shown.
+    private void applyCopies(List<CopyRect> copies) {
+        if (screen == null) return;
+        for (CopyRect copy : copies) {
+            final int[] pixels = new int[copy.getWidth() * copy.getHeight()];
+            screen.getPixelReader().getPixels(
+                    copy.getSourceX(), copy.getSourceY(), copy.getWidth(), copy.getHeight(),
+                    PixelFormat.getIntArgbInstance(), pixels, 0, copy.getWidth());
+            screen.getPixelWriter().setPixels(
+                    copy.getX(), copy.getY(), copy.getWidth(), copy.getHeight(),
+                    PixelFormat.getIntArgbInstance(), pixels, 0, copy.getWidth());
+        }
+    }
+
+    //Only the tiles that changed are written, the rest of the image stays as it is.
+    private void applyTiles(Collection<DecodedTile> tiles) {
+        //The tiles can only be applied over a full frame.
+        if (screen == null) return;
+        for (DecodedTile decoded : tiles) {
+            final Tile tile = decoded.tile;
+            final int width = Math.min(tile.getWidth(), (int)screen.getWidth() - tile.getX());
+            final int height = Math.min(tile.getHeight(), (int)screen.getHeight() - tile.getY());
+            if (width <= 0 || height <= 0) continue;
+            screen.getPixelWriter().setPixels(
+                    tile.getX(), tile.getY(), width, height,
+                    PixelFormat.getIntArgbInstance(), decoded.pixels, 0, tile.getWidth());
+        }
+    }
+
+    /**
+     * Frames decoded, as the copies and the tiles to apply to the image in order.
+     */
+    private static class ScreenUpdate {
+
+        private final int session;
+        private long sequenceNumber;
+        //Size of the image for a key frame, 0 otherwise.
+        private int width;
+        private int height;
+        //A frame copying pixels starts a new step, its copies have to be applied after the tiles before them.
+        private final List<Step> steps = new ArrayList<>();
+
+        private ScreenUpdate(Frame frame, int session) {
+            this.session = session;
+            this.sequenceNumber = frame.getSequenceNumber();
+            if (frame instanceof IFrame) {
+                this.width = ((IFrame)frame).getWidth();
+                this.height = ((IFrame)frame).getHeight();
+            }
+            steps.add(new Step(frame instanceof PFrame
+                    ? ((PFrame)frame).getCopies()
+                    : Collections.emptyList()));
+        }
+
+        private void addTile(Tile tile, int[] pixels) {
+            steps.get(steps.size() - 1).tiles.put((long)tile.getX() << 32 | tile.getY(), new DecodedTile(tile, pixels));
+        }
+
+        //A key frame replaces everything, the latest pixels of a tile replace the ones before.
+        private void merge(ScreenUpdate next) {
+            sequenceNumber = next.sequenceNumber;
+            if (next.width > 0) {
+                width = next.width;
+                height = next.height;
+                steps.clear();
+            }
+            for (Step step : next.steps) {
+                if (step.copies.isEmpty() && !steps.isEmpty()) {
+                    steps.get(steps.size() - 1).tiles.putAll(step.tiles);
+                } else {
+                    steps.add(step);
+                }
+            }
+        }
+    }
+
+    private static class Step {
+
+        private final List<CopyRect> copies;
+        //Tiles by position.
+        private final Map<Long, DecodedTile> tiles = new LinkedHashMap<>();
+
+        private Step(List<CopyRect> copies) {
+            this.copies = copies;
+        }
+    }
+
+    private static class DecodedTile {
+
+        private final Tile tile;
+        private final int[] pixels;
+
+        private DecodedTile(Tile tile, int[] pixels) {
+            this.tile = tile;
+            this.pixels = pixels;
         }
     }
 
@@ -65,7 +323,7 @@ public class ScreenViewImpl implements ScreenView {
 
     @Override
     public void moveEvent(MouseEvent event) {
-        System.err.println("EventX : "+event.getSceneX() +", EventY : "+event.getSceneY());
+        logger.debug("EventX : " + event.getSceneX() + ", EventY : " + event.getSceneY());
 //        screenController.sendEvent(
 //                model.MouseEvent.newInstance(EventType.MOUSE_MOVE,
 //                        event.getScreenX(),
@@ -2,16 +2,18 @@ package client;
 
 import model.*;
 import model.enums.ResponseType;
+import util.ChunkAssembler;
 
 import java.io.IOException;
-import java.util.List;
 
 public interface ClientProcessor extends Runnable {
 
     long FILE_SIZE_THRESHOLD = 100000;// 100 Mo
     long AUDIO_SIZE_THRESHOLD = 100000;// 100 Mo
+    long TRANSFER_IDLE_TIMEOUT = 60000;// 1 min
 
     boolean sendResponse(final Response response) throws IOException;
+    boolean offerResponse(final Response response);
     void acceptConnection(final Request request) throws IOException;
     void removeConnection();
     void sendMessage(final Request request) throws IOException;
@@ -19,27 +21,44 @@ public interface ClientProcessor extends Runnable {
     //Files
     void checkFile(final Request request) throws IOException;
     void handleFile(final Request request) throws IOException;
+    void handleFileDigest(final Request request) throws IOException;
     void prepareSendFile(final Request request) throws IOException;
     void sendFile(final Request request) throws IOException;
+    void sendFileChunks(final Request request) throws IOException;
     //Audios
     void checkAudio(final Request request) throws IOException;
     void handleAudio(final Request request) throws IOException;
+    void handleAudioEnd(final Request request) throws IOException;
     void prepareSendAudio(final Request request) throws IOException;
     void sendAudio(final Request request) throws IOException;
+    //Transfers
+    void cancelTransfer(final Request request) throws IOException;
+    void reclaimIdleTransfers();
     //Image
     void requestControl(final Request request) throws IOException;
     void stopControl(final Request request) throws IOException;
     void sendFrame(final Request request) throws IOException;
     void provokeEvent(final Request request) throws IOException;
+    void acknowledgeFrame(final Request request) throws IOException;
+    //Calls
+    void requestCall(final Request request) throws IOException;
+    void acceptCall(final Request request) throws IOException;
+    void endCall(final Request request) throws IOException;
+    void sendVoiceFrame(final Request request) throws IOException;
+    //Voice rooms
+    void joinRoom(final Request request) throws IOException;
+    void leaveRoom(final Request request) throws IOException;
+    void sendRoomVoiceFrame(final Request request) throws IOException;
 
     void addUser(final User from, final Response response) throws IOException;
     void removeUser(final User from, final Response response) throws IOException;
     void handleError(final ResponseType type) throws IOException;
+    void handleError(final ResponseType type, final long correlationId) throws IOException;
     void close();
 
-    List<FileContent> getFileContents(long fileId);
+    ChunkAssembler getFileChunks(long fileId);
     FileDescriptor getFileDescriptor(long fileId);
 
-    List<AudioContent> getAudioContents(long audioId);
+    ChunkAssembler getAudioChunks(long audioId);
     AudioDescriptor getAudioDescriptor(long audioId);
 }
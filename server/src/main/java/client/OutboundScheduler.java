@@ -0,0 +1,15 @@
+package client;
+
+import model.enums.TrafficClass;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+public interface OutboundScheduler extends Runnable {
+
+    void open(ObjectOutputStream writer);
+    boolean schedule(TrafficClass trafficClass, Serializable object) throws IOException;
+    boolean offer(TrafficClass trafficClass, Serializable object);
+    void close();
+}
@@ -1,13 +1,18 @@
 package client.impl;
 
 import client.ClientProcessor;
+import client.OutboundScheduler;
 import com.sun.istack.internal.NotNull;
 import model.*;
 import model.FileDescriptor;
 import model.enums.ResponseType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import server.MemoryGovernor;
+import server.ScreenBroadcast;
 import server.ServerServices;
+import server.VoiceMixer;
+import util.ChunkAssembler;
 
 import java.io.*;
 import java.net.Socket;
@@ -18,18 +23,33 @@ public class ClientProcessorImpl implements ClientProcessor {
 
     private static final Logger logger = LogManager.getLogger(ClientProcessorImpl.class);
 
+    //Approximate memory held by a stored chunk besides its data.
+    private static final long CHUNK_OVERHEAD = 128;
+    //Interval at which the relay of a streamed audio checks if it has been cancelled while waiting for chunks.
+    private static final long RELAY_POLL_INTERVAL = 1000;
+
     private Socket socket;
     private ServerServices server;
+    private MemoryGovernor memoryGovernor;
+    private VoiceMixer voiceMixer;
+    private ScreenBroadcast screenBroadcast;
     private ObjectOutputStream writer;
     private ObjectInputStream reader;
+    private OutboundScheduler scheduler;
 
     private final Collection<User> users = new LinkedList<>();
     //Files
-    private final Map<Long, List<FileContent>> fileContents = new HashMap<>();
+    private final Map<Long, ChunkAssembler> fileContents = new HashMap<>();
     private final Map<Long, FileDescriptor> fileDescriptors = new HashMap<>();
+    //Digests announced by the client for the files it uploads.
+    private final Map<Long, byte[]> fileDigests = new HashMap<>();
+    private final Map<Long, Transfer> fileTransfers = new HashMap<>();
     //Audios
-    private final Map<Long, List<AudioContent>> audioContents = new HashMap<>();
+    private final Map<Long, ChunkAssembler> audioContents = new HashMap<>();
     private final Map<Long, AudioDescriptor> audioDescriptors = new HashMap<>();
+    private final Map<Long, Transfer> audioTransfers = new HashMap<>();
+    //Files and audios downloaded by the client, by correlation id.
+    private final Map<Long, Download> downloads = new HashMap<>();
 
     private User user;
 
@@ -39,9 +59,14 @@ public class ClientProcessorImpl implements ClientProcessor {
 
     }
 
-    public ClientProcessorImpl(final Socket socket, final ServerServices server) {
+    public ClientProcessorImpl(final Socket socket, final ServerServices server, final MemoryGovernor memoryGovernor,
+                               final VoiceMixer voiceMixer, final ScreenBroadcast screenBroadcast) {
         this.socket = socket;
         this.server = server;
+        this.memoryGovernor = memoryGovernor;
+        this.voiceMixer = voiceMixer;
+        this.screenBroadcast = screenBroadcast;
+        this.scheduler = new OutboundSchedulerImpl(memoryGovernor);
     }
 
     private Response buildResponse(final ResponseType type, final Content content) {
@@ -52,13 +77,19 @@ public class ClientProcessorImpl implements ClientProcessor {
         return Response.newInstance(type, content, newOrigin);
     }
 
-    public synchronized boolean sendResponse(@NotNull final Response response) throws IOException {
-        if (writer != null) {
-            writer.writeObject(response);
-            writer.flush();
-            return true;
-        }
-        return false;
+    private Response buildResponse(final ResponseType type, final Content content, final User newOrigin,
+                                   final long correlationId) {
+        return Response.newInstance(type, content, newOrigin, correlationId);
+    }
+
+    public boolean sendResponse(@NotNull final Response response) throws IOException {
+        //The response is written by the scheduler's Thread, according to its traffic class.
+        return scheduler.schedule(response.getType().getTrafficClass(), response);
+    }
+
+    @Override
+    public boolean offerResponse(@NotNull final Response response) {
+        return scheduler.offer(response.getType().getTrafficClass(), response);
     }
 
     private Request getRequest() throws IOException, ClassNotFoundException {
@@ -74,6 +105,8 @@ public class ClientProcessorImpl implements ClientProcessor {
             writer = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
             writer.writeBoolean(true);
             writer.flush();
+            scheduler.open(writer);
+            new Thread(scheduler).start();
             reader = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
             while(!socket.isClosed() && isRunning) {
                 final Request request = getRequest();
@@ -102,6 +135,10 @@ public class ClientProcessorImpl implements ClientProcessor {
                         handleFile(request);
                         break;
                     }
+                    case SEND_FILE_DIGEST: {
+                        handleFileDigest(request);
+                        break;
+                    }
                     case PREPARE_REQUEST_FILE: {
                         prepareSendFile(request);
                         break;
@@ -110,6 +147,10 @@ public class ClientProcessorImpl implements ClientProcessor {
                         sendFile(request);
                         break;
                     }
+                    case REQUEST_FILE_CHUNKS: {
+                        sendFileChunks(request);
+                        break;
+                    }
                     case PREPARE_SEND_AUDIO: {
                         checkAudio(request);
                         break;
@@ -118,6 +159,10 @@ public class ClientProcessorImpl implements ClientProcessor {
                         handleAudio(request);
                         break;
                     }
+                    case SEND_AUDIO_END: {
+                        handleAudioEnd(request);
+                        break;
+                    }
                     case PREPARE_REQUEST_AUDIO: {
                         prepareSendAudio(request);
                         break;
@@ -126,6 +171,10 @@ public class ClientProcessorImpl implements ClientProcessor {
                         sendAudio(request);
                         break;
                     }
+                    case CANCEL_TRANSFER: {
+                        cancelTransfer(request);
+                        break;
+                    }
                     case REQUEST_CONTROL: {
                         requestControl(request);
                         break;
@@ -138,10 +187,42 @@ public class ClientProcessorImpl implements ClientProcessor {
                         provokeEvent(request);
                         break;
                     }
+                    case ACKNOWLEDGE_FRAME: {
+                        acknowledgeFrame(request);
+                        break;
+                    }
                     case STOP_CONTROL: {
                         stopControl(request);
                         break;
                     }
+                    case CALL: {
+                        requestCall(request);
+                        break;
+                    }
+                    case ACCEPT_CALL: {
+                        acceptCall(request);
+                        break;
+                    }
+                    case END_CALL: {
+                        endCall(request);
+                        break;
+                    }
+                    case SEND_VOICE_FRAME: {
+                        sendVoiceFrame(request);
+                        break;
+                    }
+                    case JOIN_ROOM: {
+                        joinRoom(request);
+                        break;
+                    }
+                    case LEAVE_ROOM: {
+                        leaveRoom(request);
+                        break;
+                    }
+                    case SEND_ROOM_VOICE_FRAME: {
+                        sendRoomVoiceFrame(request);
+                        break;
+                    }
                     case DISCONNECT: {
                         removeConnection();
                         return;
@@ -228,43 +309,94 @@ public class ClientProcessorImpl implements ClientProcessor {
     @Override
     public void sendMessage(Request request) throws IOException {
         if (request.getDestination() == null) {
-            handleError(ResponseType.WRONG_PARAMETERS);
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
             return;
         }
 
-        this.sendMessage(request.getContent(), request.getDestination(), ResponseType.MESSAGE, ResponseType.MESSAGE_SENT);
+        this.sendMessage(
+                request.getContent(),
+                request.getDestination(),
+                ResponseType.MESSAGE,
+                ResponseType.MESSAGE_SENT,
+                request.getCorrelationId());
     }
 
-    private void sendMessage(Content content, User destination, ResponseType type, ResponseType successResponseType) throws IOException {
+    private void sendMessage(Content content, User destination, ResponseType type, ResponseType successResponseType,
+                             long correlationId) throws IOException {
         final ClientProcessor client = server.findClient(destination.getId());
 
         //Sending the Message to the destination.
         final Response message = buildResponse(type, content);
 
         if (client != null && client.sendResponse(message)) {
-            //Sending Success Response to the User.
-            sendResponse(buildResponse(successResponseType, content));
+            //Sending Success Response to the User, on behalf of the destination.
+            sendResponse(buildResponse(successResponseType, content, destination, correlationId));
         } else {
             //Sending Failure Response to the User.
-            handleError(ResponseType.DESTINATION_NOT_FOUND);
+            handleError(ResponseType.DESTINATION_NOT_FOUND, correlationId);
         }
     }
 
     @Override
     public void checkFile(Request request) throws IOException {
         final FileDescriptor descriptor = (FileDescriptor)request.getContent();
-        if (descriptor.getChunksTotalNumber() < ClientProcessor.FILE_SIZE_THRESHOLD) {
-            //File size inferior to the maximum authorized, tell the client to start sending the file.
-            synchronized (this.fileDescriptors) {
-                this.fileDescriptors.put(descriptor.getFileId(), descriptor);
+        if (descriptor.getRecipients() == null || descriptor.getRecipients().isEmpty()) {
+            if (request.getDestination() == null) {
+                handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
+                return;
             }
+            descriptor.setRecipients(Collections.singletonList(request.getDestination()));
+        }
+        if (descriptor.getChunksTotalNumber() >= ClientProcessor.FILE_SIZE_THRESHOLD) {
+            //File is too big, tell the client to not send the file.
+            handleError(ResponseType.INSUFFICIENT_MEMORY, request.getCorrelationId());
+            return;
+        }
+
+        final long bytes = descriptor.getChunksTotalNumber() * (FileContent.MAX_BYTE_SIZE + CHUNK_OVERHEAD);
+        final Transfer transfer = new Transfer(bytes, request.getCorrelationId());
+        transfer.onAdmission = () -> acceptFile(descriptor, transfer, request.getDestination());
+        synchronized (fileTransfers) {
+            fileTransfers.put(descriptor.getFileId(), transfer);
+        }
+        switch (memoryGovernor.admit(this, bytes, transfer.onAdmission)) {
+            case GRANTED: {
+                transfer.onAdmission.run();
+                break;
+            }
+            case QUEUED: {
+                //Not enough memory for now, the file will be accepted once other transfers release theirs.
+                sendResponse(buildResponse(
+                        ResponseType.WAITING_FOR_MEMORY,
+                        FileBasicInformation.newInstance(descriptor.getFileId()),
+                        request.getDestination(),
+                        request.getCorrelationId()));
+                break;
+            }
+            case REJECTED: {
+                synchronized (fileTransfers) {
+                    fileTransfers.remove(descriptor.getFileId());
+                }
+                handleError(ResponseType.INSUFFICIENT_MEMORY, request.getCorrelationId());
+                break;
+            }
+        }
+    }
+
+    private void acceptFile(final FileDescriptor descriptor, final Transfer transfer, final User destination) {
+        if (!admitTransfer(fileTransfers, descriptor.getFileId(), transfer)) return;
+        //Tell the client to start sending the file.
+        synchronized (this.fileDescriptors) {
+            this.fileDescriptors.put(descriptor.getFileId(), descriptor);
+        }
+        try {
             sendResponse(buildResponse(
                     ResponseType.CAN_SEND_FILE,
                     FileBasicInformation.newInstance(descriptor.getFileId()),
-                    request.getDestination()));
-        } else {
-            //File is too big, tell the client to not send the file.
-            sendResponse(buildResponse(ResponseType.INSUFFICIENT_MEMORY, null));
+                    destination,
+                    transfer.correlationId));
+        } catch (IOException e) {
+            logger.error("Exception while accepting file : " + e.getMessage());
         }
     }
 
@@ -276,29 +408,98 @@ public class ClientProcessorImpl implements ClientProcessor {
             error = error || !fileDescriptors.containsKey(fileContent.getFileId());
         }
         if (error) {
-            handleError(ResponseType.WRONG_PARAMETERS);
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
+            return;
+        }
+
+        if (!fileContent.isValid()) {
+            //The chunk will be requested again once the digest of the file is received.
+            logger.warn("Corrupted chunk dropped : " + fileContent);
+            return;
+        }
+
+        touchTransfer(fileTransfers, fileContent.getFileId());
+        final FileDescriptor fileDescriptor = this.getFileDescriptor(fileContent.getFileId());
+        final ChunkAssembler chunks = getOrCreateFileChunks(fileDescriptor);
+        if (!chunks.add(fileContent.getChunkNumber(), fileContent.getData())) {
+            logger.warn("Duplicate or unexpected chunk ignored : " + fileContent);
+            return;
+        }
+
+        completeFile(fileDescriptor, chunks, request.getCorrelationId());
+    }
+
+    @Override
+    public void handleFileDigest(Request request) throws IOException {
+        final FileDigest fileDigest = (FileDigest)request.getContent();
+        final FileDescriptor fileDescriptor = (fileDigest == null) ? null : getFileDescriptor(fileDigest.getFileId());
+        if (fileDescriptor == null) {
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
             return;
         }
 
-        List<FileContent> list;
+        synchronized (fileDigests) {
+            fileDigests.put(fileDigest.getFileId(), fileDigest.getDigest());
+        }
+        touchTransfer(fileTransfers, fileDigest.getFileId());
+
+        //The digest is sent after all the chunks, the ones still missing were corrupted or lost and only those are
+        //requested again.
+        final ChunkAssembler chunks = getOrCreateFileChunks(fileDescriptor);
+        if (!chunks.isComplete()) {
+            sendResponse(buildResponse(
+                    ResponseType.RESEND_FILE_CHUNKS,
+                    ChunkRequest.newInstance(fileDigest.getFileId(), chunks.getMissing()),
+                    user,
+                    request.getCorrelationId()));
+            return;
+        }
+
+        completeFile(fileDescriptor, chunks, request.getCorrelationId());
+    }
+
+    private ChunkAssembler getOrCreateFileChunks(final FileDescriptor fileDescriptor) {
         synchronized (fileContents) {
-            if (!fileContents.containsKey(fileContent.getFileId())) {
-                fileContents.put(fileContent.getFileId(), new LinkedList<>());
+            ChunkAssembler chunks = fileContents.get(fileDescriptor.getFileId());
+            if (chunks == null) {
+                chunks = new ChunkAssembler(fileDescriptor.getChunksTotalNumber(), FileDigest.ALGORITHM);
+                fileContents.put(fileDescriptor.getFileId(), chunks);
             }
-            list = fileContents.get(fileContent.getFileId());
+            return chunks;
+        }
+    }
+
+    private void completeFile(final FileDescriptor fileDescriptor, final ChunkAssembler chunks,
+                              final long correlationId) throws IOException {
+        final byte[] expectedDigest;
+        synchronized (fileDigests) {
+            expectedDigest = fileDigests.get(fileDescriptor.getFileId());
         }
+        //The file is complete once all its chunks and its digest are received, and it is only delivered once.
+        if (expectedDigest == null || !chunks.isComplete() || fileDescriptor.getDigest() != null) return;
 
-        list.add(fileContent);
+        if (!Arrays.equals(expectedDigest, chunks.getDigest())) {
+            logger.error("Digest mismatch for : " + fileDescriptor);
+            sendResponse(buildResponse(
+                    ResponseType.CORRUPTED_FILE,
+                    FileBasicInformation.newInstance(fileDescriptor.getFileId()),
+                    user,
+                    correlationId));
+            return;
+        }
+        fileDescriptor.setDigest(expectedDigest);
+        completeTransfer(fileTransfers, fileDescriptor.getFileId());
 
-        final FileDescriptor fileDescriptor = this.getFileDescriptor(fileContent.getFileId());
-        if (list.size() == fileDescriptor.getChunksTotalNumber()) {
-            //If all the parts are received, send a FileMessage to the destination, and tell
-            // the sending user that the file has been sent.
+        //If all the parts are received, send a FileMessage to every recipient, and tell
+        // the sending user that the file has been sent. The file itself is stored once and downloaded
+        // by the recipients from this client's storage.
+        for (User recipient : fileDescriptor.getRecipients()) {
             sendMessage(
                     FileMessageContent.newInstance(fileDescriptor),
-                    request.getDestination(),
+                    recipient,
                     ResponseType.FILE_MESSAGE,
-                    ResponseType.FILE_SENT);
+                    ResponseType.FILE_SENT,
+                    correlationId);
         }
     }
 
@@ -310,14 +511,15 @@ public class ClientProcessorImpl implements ClientProcessor {
 
         final FileDescriptor fileDescriptor = client.getFileDescriptor(((FileBasicInformation)request.getContent()).getFileId());
         if (fileDescriptor == null) {
-            handleError(ResponseType.WRONG_PARAMETERS);
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
             return;
         }
 
         sendResponse(buildResponse(
                 ResponseType.PREPARE_RECEIVE_FILE,
                 fileDescriptor,
-                (request.getDestination() == null) ? user : request.getDestination()));
+                (request.getDestination() == null) ? user : request.getDestination(),
+                request.getCorrelationId()));
     }
 
     @Override
@@ -328,36 +530,134 @@ public class ClientProcessorImpl implements ClientProcessor {
         final FileDescriptor fileDescriptor = client.getFileDescriptor(fileBasicInformation.getFileId());
 
         if (fileDescriptor == null || request.getDestination() == null) {
-            handleError(ResponseType.WRONG_PARAMETERS);
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
             return;
         }
 
-        final List<FileContent> list = client.getFileContents(fileBasicInformation.getFileId());
-        if (list.size() != fileDescriptor.getChunksTotalNumber()) {
-            handleError(ResponseType.WRONG_PARAMETERS);
+        //Only the files whose digest has been verified can be downloaded.
+        final ChunkAssembler chunks = client.getFileChunks(fileBasicInformation.getFileId());
+        if (chunks == null || !chunks.isComplete() || fileDescriptor.getDigest() == null) {
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
+            return;
+        }
+
+        //The chunks are sent from another Thread, so that the download can be cancelled while it runs.
+        final User destination = request.getDestination();
+        final long correlationId = request.getCorrelationId();
+        final Download download = startDownload(correlationId);
+        new Thread(() -> {
+            try {
+                for (int i = 0; i < chunks.getChunksTotalNumber(); i++) {
+                    final FileContent fc = FileContent.newInstance(fileDescriptor.getFileId(), i, chunks.get(i));
+                    if (download.isCancelled) return;
+                    if (!sendResponse(buildResponse(ResponseType.FILE_CHUNK, fc, destination, correlationId))) return;
+                }
+                sendResponse(buildResponse(
+                        ResponseType.FILE_DIGEST,
+                        FileDigest.newInstance(fileDescriptor.getFileId(), fileDescriptor.getDigest()),
+                        destination,
+                        correlationId));
+            } catch (IOException e) {
+                logger.error("Exception while sending file : " + e.getMessage());
+            } finally {
+                endDownload(correlationId, download);
+            }
+        }).start();
+    }
+
+    @Override
+    public void sendFileChunks(Request request) throws IOException {
+        final ChunkRequest chunkRequest = (ChunkRequest)request.getContent();
+        final ClientProcessor client = (request.getDestination() == null)
+                ? null
+                : server.findClient(request.getDestination().getId());
+        if (chunkRequest == null || client == null) {
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
             return;
         }
 
-        for (FileContent fc : list) {
-            sendResponse(buildResponse(ResponseType.FILE_CHUNK, fc, request.getDestination()));
+        final FileDescriptor fileDescriptor = client.getFileDescriptor(chunkRequest.getTransferId());
+        final ChunkAssembler chunks = client.getFileChunks(chunkRequest.getTransferId());
+        if (fileDescriptor == null || chunks == null || fileDescriptor.getDigest() == null) {
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
+            return;
         }
+
+        //Only the chunks the client could not verify are sent again, followed by the digest.
+        for (long chunkNumber : chunkRequest.getChunkNumbers()) {
+            final byte[] data = chunks.get(chunkNumber);
+            if (data != null) {
+                final FileContent fc = FileContent.newInstance(chunkRequest.getTransferId(), chunkNumber, data);
+                sendResponse(buildResponse(
+                        ResponseType.FILE_CHUNK,
+                        fc,
+                        request.getDestination(),
+                        request.getCorrelationId()));
+            }
+        }
+        sendResponse(buildResponse(
+                ResponseType.FILE_DIGEST,
+                FileDigest.newInstance(fileDescriptor.getFileId(), fileDescriptor.getDigest()),
+                request.getDestination(),
+                request.getCorrelationId()));
     }
 
     @Override
     public void checkAudio(Request request) throws IOException {
         final AudioDescriptor descriptor = (AudioDescriptor) request.getContent();
-        if (descriptor.getChunksTotalNumber() < ClientProcessor.AUDIO_SIZE_THRESHOLD) {
-            //Audio file size inferior to the maximum authorized, tell the client to start sending the file.
-            synchronized ( this.audioDescriptors) {
-                this.audioDescriptors.put(descriptor.getAudioId(), descriptor);
+        if (descriptor.getChunksTotalNumber() >= ClientProcessor.AUDIO_SIZE_THRESHOLD) {
+            //File is too big, tell the client to not send the file.
+            handleError(ResponseType.INSUFFICIENT_MEMORY, request.getCorrelationId());
+            return;
+        }
+
+        //The memory of a streamed audio is reserved chunk by chunk, as it is recorded.
+        final long bytes = descriptor.isStreamed()
+                ? 0
+                : descriptor.getChunksTotalNumber() * (AudioContent.MAX_BYTE_SIZE + CHUNK_OVERHEAD);
+        final Transfer transfer = new Transfer(bytes, request.getCorrelationId());
+        transfer.onAdmission = () -> acceptAudio(descriptor, transfer, request.getDestination());
+        synchronized (audioTransfers) {
+            audioTransfers.put(descriptor.getAudioId(), transfer);
+        }
+        switch (memoryGovernor.admit(this, bytes, transfer.onAdmission)) {
+            case GRANTED: {
+                transfer.onAdmission.run();
+                break;
+            }
+            case QUEUED: {
+                //Not enough memory for now, the audio will be accepted once other transfers release theirs.
+                sendResponse(buildResponse(
+                        ResponseType.WAITING_FOR_MEMORY,
+                        AudioBasicInformation.newInstance(descriptor.getAudioId()),
+                        request.getDestination(),
+                        request.getCorrelationId()));
+                break;
             }
+            case REJECTED: {
+                synchronized (audioTransfers) {
+                    audioTransfers.remove(descriptor.getAudioId());
+                }
+                handleError(ResponseType.INSUFFICIENT_MEMORY, request.getCorrelationId());
+                break;
+            }
+        }
+    }
+
+    private void acceptAudio(final AudioDescriptor descriptor, final Transfer transfer, final User destination) {
+        if (!admitTransfer(audioTransfers, descriptor.getAudioId(), transfer)) return;
+        //Tell the client to start sending the audio.
+        synchronized (this.audioDescriptors) {
+            this.audioDescriptors.put(descriptor.getAudioId(), descriptor);
+        }
+        try {
             sendResponse(buildResponse(
                     ResponseType.CAN_SEND_AUDIO,
                     AudioBasicInformation.newInstance(descriptor.getAudioId()),
-                    request.getDestination()));
-        } else {
-            //File is too big, tell the client to not send the file.
-            sendResponse(buildResponse(ResponseType.INSUFFICIENT_MEMORY, null));
+                    destination,
+                    transfer.correlationId));
+        } catch (IOException e) {
+            logger.error("Exception while accepting audio : " + e.getMessage());
         }
     }
 
@@ -370,34 +670,96 @@ public class ClientProcessorImpl implements ClientProcessor {
             error = error || !audioDescriptors.containsKey(audioContent.getAudioId());
         }
         if (error) {
-            handleError(ResponseType.WRONG_PARAMETERS);
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
             return;
         }
 
+        touchTransfer(audioTransfers, audioContent.getAudioId());
+        final AudioDescriptor audioDescriptor = this.getAudioDescriptor(audioContent.getAudioId());
+        final ChunkAssembler chunks = getOrCreateAudioChunks(audioDescriptor);
 
-        List<AudioContent> list;
-        synchronized (audioContents) {
-            if (!audioContents.containsKey(audioContent.getAudioId())) {
-                audioContents.put(audioContent.getAudioId(), new LinkedList<>());
-            }
-            list = audioContents.get(audioContent.getAudioId());
+        final boolean isStreamed = chunks.getChunksTotalNumber() == ChunkAssembler.UNKNOWN_TOTAL;
+        if (isStreamed && audioContent.getChunkNumber() >= ClientProcessor.AUDIO_SIZE_THRESHOLD) {
+            //The recording is too long, it is dropped.
+            cancelAudioUpload(audioContent.getAudioId());
+            handleError(ResponseType.INSUFFICIENT_MEMORY, request.getCorrelationId());
+            return;
+        }
+        if (!chunks.add(audioContent.getChunkNumber(), audioContent.getData())) {
+            logger.warn("Duplicate or unexpected chunk ignored : " + audioContent);
+            return;
+        }
+        if (isStreamed && !reserveTransferMemory(
+                audioTransfers,
+                audioContent.getAudioId(),
+                audioContent.getData().length + CHUNK_OVERHEAD)) {
+            //The server has no memory left for the recording, it is dropped like a recording too long.
+            logger.warn("Recording dropped, not enough memory : " + audioContent.getAudioId());
+            cancelAudioUpload(audioContent.getAudioId());
+            handleError(ResponseType.INSUFFICIENT_MEMORY, request.getCorrelationId());
+            return;
         }
 
+        //A streamed audio is announced with its first chunk so that it can be relayed while it is recorded,
+        //otherwise once all its parts are received.
+        if (isStreamed ? chunks.getReceivedCount() == 1 : chunks.isComplete()) {
+            announceAudio(audioDescriptor, request.getDestination(), request.getCorrelationId());
+        }
+        if (chunks.isComplete()) {
+            completeTransfer(audioTransfers, audioContent.getAudioId());
+        }
+    }
 
-        list.add(audioContent);
+    @Override
+    public void handleAudioEnd(Request request) throws IOException {
+        final AudioDescriptor end = (AudioDescriptor) request.getContent();
+        final AudioDescriptor audioDescriptor = (end == null) ? null : getAudioDescriptor(end.getAudioId());
+        if (audioDescriptor == null) {
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
+            return;
+        }
 
-        final AudioDescriptor audioDescriptor = this.getAudioDescriptor(audioContent.getAudioId());
-        if (list.size() == audioDescriptor.getChunksTotalNumber()) {
-            //If all the parts are received, send an Audio Message to the destination, and tell
-            // the sending user that the file has been sent.
-            sendMessage(
-                    AudioMessageContent.newInstance(audioDescriptor),
-                    request.getDestination(),
-                    ResponseType.AUDIO_MESSAGE,
-                    ResponseType.AUDIO_SENT);
+        final ChunkAssembler chunks = getOrCreateAudioChunks(audioDescriptor);
+        if (!chunks.setChunksTotalNumber(end.getChunksTotalNumber())) {
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
+            return;
+        }
+        audioDescriptor.setChunksTotalNumber(end.getChunksTotalNumber());
+        touchTransfer(audioTransfers, audioDescriptor.getAudioId());
+
+        if (chunks.getReceivedCount() == 0) {
+            //Nothing was recorded, the audio has not been announced yet.
+            announceAudio(audioDescriptor, request.getDestination(), request.getCorrelationId());
+        }
+        if (chunks.isComplete()) {
+            completeTransfer(audioTransfers, audioDescriptor.getAudioId());
+        }
+    }
+
+    private ChunkAssembler getOrCreateAudioChunks(final AudioDescriptor audioDescriptor) {
+        synchronized (audioContents) {
+            ChunkAssembler chunks = audioContents.get(audioDescriptor.getAudioId());
+            if (chunks == null) {
+                chunks = new ChunkAssembler(audioDescriptor.isStreamed()
+                        ? ChunkAssembler.UNKNOWN_TOTAL
+                        : audioDescriptor.getChunksTotalNumber());
+                audioContents.put(audioDescriptor.getAudioId(), chunks);
+            }
+            return chunks;
         }
     }
 
+    private void announceAudio(final AudioDescriptor audioDescriptor, final User destination,
+                               final long correlationId) throws IOException {
+        //Send an Audio Message to the destination, and tell the sending user that the audio has been sent.
+        sendMessage(
+                AudioMessageContent.newInstance(audioDescriptor),
+                destination,
+                ResponseType.AUDIO_MESSAGE,
+                ResponseType.AUDIO_SENT,
+                correlationId);
+    }
+
     @Override
     public void prepareSendAudio(Request request) throws IOException {
         final ClientProcessor client = (request.getDestination() == null)
@@ -407,14 +769,15 @@ public class ClientProcessorImpl implements ClientProcessor {
         final AudioDescriptor audioDescriptor = client.getAudioDescriptor(
                 ((AudioBasicInformation)request.getContent()).getAudioId());
         if (audioDescriptor == null) {
-            handleError(ResponseType.WRONG_PARAMETERS);
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
             return;
         }
 
         sendResponse(buildResponse(
                 ResponseType.PREPARE_RECEIVE_AUDIO,
                 audioDescriptor,
-                (request.getDestination() == null) ? user : request.getDestination()));
+                (request.getDestination() == null) ? user : request.getDestination(),
+                request.getCorrelationId()));
     }
 
     @Override
@@ -425,18 +788,272 @@ public class ClientProcessorImpl implements ClientProcessor {
         final AudioDescriptor audioDescriptor = client.getAudioDescriptor(audioBasicInformation.getAudioId());
 
         if (audioDescriptor == null || request.getDestination() == null) {
-            handleError(ResponseType.WRONG_PARAMETERS);
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
             return;
         }
 
-        final List<AudioContent> list = client.getAudioContents(audioBasicInformation.getAudioId());
-        if (list.size() != audioDescriptor.getChunksTotalNumber()) {
-            handleError(ResponseType.WRONG_PARAMETERS);
+        //A streamed audio is relayed while it is being recorded.
+        final ChunkAssembler chunks = client.getAudioChunks(audioBasicInformation.getAudioId());
+        if (chunks == null) {
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
             return;
         }
 
-        for (AudioContent fc : list) {
-            sendResponse(buildResponse(ResponseType.AUDIO_CHUNK, fc, request.getDestination()));
+        final User destination = request.getDestination();
+        final long correlationId = request.getCorrelationId();
+        final Download download = startDownload(correlationId);
+        new Thread(() -> {
+            try {
+                long chunkNumber = 0;
+                long lastChunkTime = System.currentTimeMillis();
+                while (!download.isCancelled) {
+                    final byte[] data = chunks.await(chunkNumber, RELAY_POLL_INTERVAL);
+                    if (data != null) {
+                        final AudioContent ac = AudioContent.newInstance(
+                                audioDescriptor.getAudioId(),
+                                chunkNumber,
+                                data);
+                        if (!sendResponse(buildResponse(ResponseType.AUDIO_CHUNK, ac, destination, correlationId))) {
+                            return;
+                        }
+                        chunkNumber++;
+                        lastChunkTime = System.currentTimeMillis();
+                    } else if (chunks.isComplete()) {
+                        sendResponse(buildResponse(
+                                ResponseType.AUDIO_END,
+                                AudioDescriptor.newInstance(audioDescriptor.getAudioId(), chunkNumber),
+                                destination,
+                                correlationId));
+                        return;
+                    } else if (System.currentTimeMillis() - lastChunkTime > ClientProcessor.TRANSFER_IDLE_TIMEOUT) {
+                        //The recording has been abandoned.
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Exception while sending audio : " + e.getMessage());
+            } catch (InterruptedException e) {
+                logger.error("Interrupted while sending audio : " + e.getMessage());
+            } finally {
+                endDownload(correlationId, download);
+            }
+        }).start();
+    }
+
+    @Override
+    public void cancelTransfer(Request request) throws IOException {
+        final Content content = request.getContent();
+        final User destination = request.getDestination();
+        //The transfer is the one sharing the correlation id of the request, one of the client's uploads without
+        //destination, otherwise a download from the destination.
+        final long correlationId = request.getCorrelationId();
+        final boolean cancelled;
+        if (destination != null) {
+            cancelled = cancelDownload(correlationId);
+        } else {
+            final Long fileId = findTransfer(fileTransfers, correlationId);
+            final Long audioId = findTransfer(audioTransfers, correlationId);
+            cancelled = (fileId != null && cancelFileUpload(fileId)) || (audioId != null && cancelAudioUpload(audioId));
+        }
+
+        if (!cancelled) {
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
+            return;
+        }
+        sendResponse(buildResponse(
+                ResponseType.TRANSFER_CANCELLED,
+                content,
+                (destination == null) ? user : destination,
+                request.getCorrelationId()));
+    }
+
+    @Override
+    public void reclaimIdleTransfers() {
+        final long now = System.currentTimeMillis();
+        try {
+            for (Map.Entry<Long, Transfer> entry : findIdleTransfers(fileTransfers, now).entrySet()) {
+                logger.info("Reclaiming abandoned file : " + entry.getKey());
+                if (cancelFileUpload(entry.getKey())) {
+                    sendResponse(buildResponse(
+                            ResponseType.TRANSFER_CANCELLED,
+                            FileBasicInformation.newInstance(entry.getKey()),
+                            user,
+                            entry.getValue().correlationId));
+                }
+            }
+            for (Map.Entry<Long, Transfer> entry : findIdleTransfers(audioTransfers, now).entrySet()) {
+                logger.info("Reclaiming abandoned audio : " + entry.getKey());
+                if (cancelAudioUpload(entry.getKey())) {
+                    sendResponse(buildResponse(
+                            ResponseType.TRANSFER_CANCELLED,
+                            AudioBasicInformation.newInstance(entry.getKey()),
+                            user,
+                            entry.getValue().correlationId));
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Exception while reclaiming transfers : " + e.getMessage());
+        }
+    }
+
+    private boolean cancelFileUpload(final long fileId) {
+        if (!dropTransfer(fileTransfers, fileId)) return false;
+        synchronized (fileDescriptors) {
+            fileDescriptors.remove(fileId);
+        }
+        synchronized (fileContents) {
+            fileContents.remove(fileId);
+        }
+        synchronized (fileDigests) {
+            fileDigests.remove(fileId);
+        }
+        return true;
+    }
+
+    private boolean cancelAudioUpload(final long audioId) {
+        if (!dropTransfer(audioTransfers, audioId)) return false;
+        synchronized (audioDescriptors) {
+            audioDescriptors.remove(audioId);
+        }
+        synchronized (audioContents) {
+            audioContents.remove(audioId);
+        }
+        return true;
+    }
+
+    /**
+     * Marks a transfer as admitted, unless it was cancelled while waiting for memory in which case the memory just
+     * reserved for it is released.
+     */
+    private boolean admitTransfer(final Map<Long, Transfer> transfers, final long transferId, final Transfer transfer) {
+        synchronized (transfers) {
+            if (transfers.get(transferId) == transfer) {
+                transfer.isAdmitted = true;
+                transfer.lastActivity = System.currentTimeMillis();
+                return true;
+            }
+        }
+        memoryGovernor.release(transfer.reservedMemory);
+        return false;
+    }
+
+    /**
+     * Removes a transfer and gives its memory back, or withdraws its admission if it is still waiting for it.
+     */
+    private boolean dropTransfer(final Map<Long, Transfer> transfers, final long transferId) {
+        final Transfer transfer;
+        final boolean isAdmitted;
+        final long reservedMemory;
+        synchronized (transfers) {
+            transfer = transfers.remove(transferId);
+            if (transfer == null) return false;
+            isAdmitted = transfer.isAdmitted;
+            reservedMemory = transfer.reservedMemory;
+        }
+        if (isAdmitted) {
+            memoryGovernor.release(reservedMemory);
+        } else {
+            memoryGovernor.withdraw(transfer.onAdmission);
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the memory does not fit in the budget, the transfer then has to be dropped.
+     */
+    private boolean reserveTransferMemory(final Map<Long, Transfer> transfers, final long transferId,
+                                          final long bytes) {
+        if (!memoryGovernor.tryReserve(bytes)) return false;
+        synchronized (transfers) {
+            final Transfer transfer = transfers.get(transferId);
+            if (transfer != null) {
+                transfer.reservedMemory += bytes;
+                return true;
+            }
+        }
+        //The transfer has been dropped meanwhile.
+        memoryGovernor.release(bytes);
+        return true;
+    }
+
+    private static void touchTransfer(final Map<Long, Transfer> transfers, final long transferId) {
+        synchronized (transfers) {
+            final Transfer transfer = transfers.get(transferId);
+            if (transfer != null) transfer.lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    private static void completeTransfer(final Map<Long, Transfer> transfers, final long transferId) {
+        synchronized (transfers) {
+            final Transfer transfer = transfers.get(transferId);
+            if (transfer != null) transfer.isComplete = true;
+        }
+    }
+
+    private static Long findTransfer(final Map<Long, Transfer> transfers, final long correlationId) {
+        synchronized (transfers) {
+            for (Map.Entry<Long, Transfer> entry : transfers.entrySet()) {
+                if (entry.getValue().correlationId == correlationId) return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static Map<Long, Transfer> findIdleTransfers(final Map<Long, Transfer> transfers, final long now) {
+        final Map<Long, Transfer> idleTransfers = new LinkedHashMap<>();
+        synchronized (transfers) {
+            for (Map.Entry<Long, Transfer> entry : transfers.entrySet()) {
+                final Transfer transfer = entry.getValue();
+                if (transfer.isAdmitted && !transfer.isComplete
+                        && now - transfer.lastActivity > ClientProcessor.TRANSFER_IDLE_TIMEOUT) {
+                    idleTransfers.put(entry.getKey(), transfer);
+                }
+            }
+        }
+        return idleTransfers;
+    }
+
+    private Download startDownload(final long correlationId) {
+        final Download download = new Download();
+        synchronized (downloads) {
+            downloads.put(correlationId, download);
+        }
+        return download;
+    }
+
+    private void endDownload(final long correlationId, final Download download) {
+        synchronized (downloads) {
+            if (downloads.get(correlationId) == download) downloads.remove(correlationId);
+        }
+    }
+
+    private boolean cancelDownload(final long correlationId) {
+        final Download download;
+        synchronized (downloads) {
+            download = downloads.remove(correlationId);
+        }
+        if (download == null) return false;
+        download.isCancelled = true;
+        return true;
+    }
+
+    private static long dropTransfers(final Map<Long, Transfer> transfers) {
+        long reservedMemory = 0;
+        synchronized (transfers) {
+            for (Transfer transfer : transfers.values()) {
+                if (transfer.isAdmitted) reservedMemory += transfer.reservedMemory;
+            }
+            transfers.clear();
+        }
+        return reservedMemory;
+    }
+
+    private void cancelDownloads() {
+        synchronized (downloads) {
+            for (Download download : downloads.values()) {
+                download.isCancelled = true;
+            }
+            downloads.clear();
         }
     }
 
@@ -453,6 +1070,8 @@ public class ClientProcessorImpl implements ClientProcessor {
             return;
         }
 
+        //A stream in progress is joined as it is, only the first viewer asks the streamer to start.
+        if (!screenBroadcast.join(request.getDestination().getId(), this, user)) return;
         client.sendResponse(buildResponse(ResponseType.CONTROL_REQUEST, request.getContent()));
     }
 
@@ -463,6 +1082,9 @@ public class ClientProcessorImpl implements ClientProcessor {
             return;
         }
 
+        //The stream goes on as long as someone views it.
+        if (!screenBroadcast.leave(request.getDestination().getId(), user.getId())) return;
+
         final ClientProcessor client = server.findClient(request.getDestination().getId());
         if (client == null) {
             handleError(ResponseType.DESTINATION_NOT_FOUND);
@@ -474,6 +1096,14 @@ public class ClientProcessorImpl implements ClientProcessor {
 
     @Override
     public void sendFrame(Request request) throws IOException {
+        //The frame goes to all the viewers of the stream, whatever the destination the streamer started it for.
+        if (!screenBroadcast.receiveFrame(user, (Frame)request.getContent())) {
+            sendResponse(buildResponse(ResponseType.END_CONTROL, null));
+        }
+    }
+
+    @Override
+    public void provokeEvent(Request request) throws IOException {
         if (request.getDestination() == null) {
             handleError(ResponseType.WRONG_PARAMETERS);
             return;
@@ -481,15 +1111,52 @@ public class ClientProcessorImpl implements ClientProcessor {
 
         final ClientProcessor client = server.findClient(request.getDestination().getId());
         if (client == null) {
-            sendResponse(buildResponse(ResponseType.END_CONTROL, null));
+            sendResponse(buildResponse(ResponseType.DESTINATION_NOT_FOUND, null));
             return;
         }
 
-        client.sendResponse(buildResponse(ResponseType.FRAME, request.getContent()));
+        client.sendResponse(buildResponse(ResponseType.PROVOKE_EVENT, request.getContent()));
     }
 
     @Override
-    public void provokeEvent(Request request) throws IOException {
+    public void acknowledgeFrame(Request request) throws IOException {
+        if (request.getDestination() == null) {
+            handleError(ResponseType.WRONG_PARAMETERS);
+            return;
+        }
+
+        final long sequenceNumber = screenBroadcast.acknowledgeFrame(
+                request.getDestination().getId(),
+                user.getId(),
+                ((FrameAck)request.getContent()).getSequenceNumber());
+        if (sequenceNumber < 0) return;
+
+        //The streamer may have stopped in the meantime, the acknowledgement is then dropped.
+        final ClientProcessor client = server.findClient(request.getDestination().getId());
+        if (client == null) return;
+
+        client.sendResponse(buildResponse(ResponseType.FRAME_ACKNOWLEDGED, FrameAck.newInstance(sequenceNumber)));
+    }
+
+    @Override
+    public void requestCall(Request request) throws IOException {
+        relayCall(request, ResponseType.CALL_REQUEST);
+    }
+
+    @Override
+    public void acceptCall(Request request) throws IOException {
+        relayCall(request, ResponseType.CALL_ACCEPTED);
+    }
+
+    @Override
+    public void endCall(Request request) throws IOException {
+        relayCall(request, ResponseType.CALL_ENDED);
+    }
+
+    /**
+     * Forwards the signaling of a call to the other user, the server keeps no state about the calls.
+     */
+    private void relayCall(final Request request, final ResponseType type) throws IOException {
         if (request.getDestination() == null) {
             handleError(ResponseType.WRONG_PARAMETERS);
             return;
@@ -497,11 +1164,53 @@ public class ClientProcessorImpl implements ClientProcessor {
 
         final ClientProcessor client = server.findClient(request.getDestination().getId());
         if (client == null) {
-            sendResponse(buildResponse(ResponseType.DESTINATION_NOT_FOUND, null));
+            handleError(ResponseType.DESTINATION_NOT_FOUND);
             return;
         }
 
-        client.sendResponse(buildResponse(ResponseType.PROVOKE_EVENT, request.getContent()));
+        client.sendResponse(buildResponse(type, request.getContent()));
+    }
+
+    @Override
+    public void sendVoiceFrame(Request request) throws IOException {
+        if (request.getDestination() == null) {
+            handleError(ResponseType.WRONG_PARAMETERS);
+            return;
+        }
+
+        //The other user left, the call is over.
+        final ClientProcessor client = server.findClient(request.getDestination().getId());
+        if (client == null) {
+            sendResponse(buildResponse(ResponseType.CALL_ENDED, null, request.getDestination()));
+            return;
+        }
+
+        client.sendResponse(buildResponse(ResponseType.VOICE_FRAME, request.getContent()));
+    }
+
+    @Override
+    public void joinRoom(Request request) throws IOException {
+        final RoomInformation roomInformation = (RoomInformation) request.getContent();
+        if (roomInformation == null || roomInformation.getName() == null || roomInformation.getCodecType() == null) {
+            handleError(ResponseType.WRONG_PARAMETERS, request.getCorrelationId());
+            return;
+        }
+
+        sendResponse(buildResponse(
+                ResponseType.ROOM_JOINED,
+                voiceMixer.join(roomInformation.getName(), this, user, roomInformation.getCodecType()),
+                user,
+                request.getCorrelationId()));
+    }
+
+    @Override
+    public void leaveRoom(Request request) throws IOException {
+        voiceMixer.leave(user.getId());
+    }
+
+    @Override
+    public void sendRoomVoiceFrame(Request request) throws IOException {
+        voiceMixer.receiveFrame(user.getId(), (VoiceFrame) request.getContent());
     }
 
     @Override
@@ -527,9 +1236,24 @@ public class ClientProcessorImpl implements ClientProcessor {
         }
     }
 
+    @Override
+    public void handleError(ResponseType type, long correlationId) throws IOException {
+        if (!socket.isClosed()) {
+            this.sendResponse(this.buildResponse(type, null, user, correlationId));
+        }
+    }
+
     @Override
     public void close() {
+        //The stored transfers are dropped with the connection, as well as the admissions still waiting.
+        memoryGovernor.withdraw(this);
+        memoryGovernor.release(dropTransfers(fileTransfers) + dropTransfers(audioTransfers));
+        cancelDownloads();
+        if (user != null) voiceMixer.leave(user.getId());
+
         try {
+            if (user != null) stopAbandonedStreams();
+            scheduler.close();
             synchronized (this) {
                 writer = null;
                 reader = null;
@@ -541,8 +1265,20 @@ public class ClientProcessorImpl implements ClientProcessor {
         }
     }
 
+    //The streams this client was the last viewer of are stopped, as if it had left them, and the viewers of its own
+    //stream are told it ended.
+    private void stopAbandonedStreams() throws IOException {
+        for (long streamerId : screenBroadcast.leaveAll(user.getId())) {
+            final ClientProcessor client = server.findClient(streamerId);
+            if (client != null) client.sendResponse(buildResponse(ResponseType.END_CONTROL, null));
+        }
+        for (ClientProcessor viewer : screenBroadcast.end(user.getId())) {
+            viewer.sendResponse(buildResponse(ResponseType.END_CONTROL, null));
+        }
+    }
+
     @Override
-    public List<FileContent> getFileContents(long fileId) {
+    public ChunkAssembler getFileChunks(long fileId) {
         synchronized (fileContents) {
             return fileContents.get(fileId);
         }
@@ -556,7 +1292,7 @@ public class ClientProcessorImpl implements ClientProcessor {
     }
 
     @Override
-    public List<AudioContent> getAudioContents(long audioId) {
+    public ChunkAssembler getAudioChunks(long audioId) {
         synchronized (audioContents) {
             return audioContents.get(audioId);
         }
@@ -568,4 +1304,32 @@ public class ClientProcessorImpl implements ClientProcessor {
             return audioDescriptors.get(audioId);
         }
     }
+
+    /**
+     * A transfer uploaded by the client, from its admission request until it is dropped.
+     */
+    private static class Transfer {
+
+        //Grows with the chunks of a streamed transfer.
+        private long reservedMemory;
+        private final long correlationId;
+        private Runnable onAdmission;
+        private volatile boolean isAdmitted = false;
+        private volatile boolean isComplete = false;
+        private volatile long lastActivity;
+
+        private Transfer(long reservedMemory, long correlationId) {
+            this.reservedMemory = reservedMemory;
+            this.correlationId = correlationId;
+            this.lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * A transfer downloaded by the client, sent by its own Thread.
+     */
+    private static class Download {
+
+        private volatile boolean isCancelled = false;
+    }
 }
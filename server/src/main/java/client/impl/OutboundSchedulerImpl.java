@@ -0,0 +1,200 @@
+package client.impl;
+
+import client.OutboundScheduler;
+import model.ChunkContent;
+import model.Content;
+import model.Frame;
+import model.Response;
+import model.Tile;
+import model.enums.TrafficClass;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import server.MemoryGovernor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Writes the objects scheduled by any thread on a single ObjectOutputStream.
+ *
+ * Every TrafficClass has its own queue, the queues are drained in rounds during which each class may write up to
+ * its weight in objects, so that messages sent to this client never wait behind a long stream of chunks or frames.
+ * The pending objects are accounted for by the MemoryGovernor until they are written.
+ */
+public class OutboundSchedulerImpl implements OutboundScheduler {
+
+    private static final Logger logger = LogManager.getLogger(OutboundSchedulerImpl.class);
+
+    //Maximum number of pending objects in a bounded class before the producers are blocked.
+    private static final int QUEUE_CAPACITY = 256;
+    //Number of objects written before the stream's back reference table is cleared.
+    private static final int RESET_INTERVAL = 1024;
+    //Maximum time given to the pending objects to be written once the scheduler is closed.
+    private static final long CLOSE_TIMEOUT = 1000;
+    //Approximate memory held by a queued object besides its payload.
+    private static final long OBJECT_OVERHEAD = 256;
+
+    private final MemoryGovernor memoryGovernor;
+
+    private final Map<TrafficClass, Deque<Serializable>> queues = new EnumMap<>(TrafficClass.class);
+    private ObjectOutputStream writer;
+
+    private boolean isRunning = false;
+    private boolean isDrained = true;
+
+    public OutboundSchedulerImpl(final MemoryGovernor memoryGovernor) {
+        this.memoryGovernor = memoryGovernor;
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            queues.put(trafficClass, new ArrayDeque<>());
+        }
+    }
+
+    @Override
+    public synchronized void open(ObjectOutputStream writer) {
+        this.writer = writer;
+        this.isRunning = true;
+        this.isDrained = false;
+    }
+
+    @Override
+    public synchronized boolean schedule(TrafficClass trafficClass, Serializable object) throws IOException {
+        final Deque<Serializable> queue = queues.get(trafficClass);
+        try {
+            while (isRunning && trafficClass.isBounded() && queue.size() >= QUEUE_CAPACITY) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to schedule : " + object);
+        }
+        if (!isRunning) return false;
+
+        queue.addLast(object);
+        memoryGovernor.reserve(estimateSize(object));
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Schedules an object unless its queue is full, for producers that must never be blocked by a slow client.
+     * @return false if the object was not scheduled.
+     */
+    @Override
+    public synchronized boolean offer(TrafficClass trafficClass, Serializable object) {
+        final Deque<Serializable> queue = queues.get(trafficClass);
+        if (!isRunning || (trafficClass.isBounded() && queue.size() >= QUEUE_CAPACITY)) return false;
+
+        queue.addLast(object);
+        memoryGovernor.reserve(estimateSize(object));
+        notifyAll();
+        return true;
+    }
+
+    @Override
+    public void run() {
+        final Deque<Serializable> round = new ArrayDeque<>();
+        int written = 0;
+        try {
+            while (true) {
+                boolean isIdle;
+                synchronized (this) {
+                    while (isRunning && isEmpty()) {
+                        wait();
+                    }
+                    if (isEmpty()) break;
+
+                    //One round : every class hands over up to its weight in objects, in priority order.
+                    for (TrafficClass trafficClass : TrafficClass.values()) {
+                        final Deque<Serializable> queue = queues.get(trafficClass);
+                        for (int i = 0; i < trafficClass.getWeight() && !queue.isEmpty(); i++) {
+                            round.add(queue.pollFirst());
+                        }
+                    }
+                    isIdle = isEmpty();
+                    //Wake up the producers blocked on a full queue.
+                    notifyAll();
+                }
+
+                written += round.size();
+                Serializable object;
+                while ((object = round.pollFirst()) != null) {
+                    memoryGovernor.release(estimateSize(object));
+                    writer.writeObject(object);
+                }
+
+                //Without a reset the stream keeps a reference to every object ever written.
+                if (isIdle || written >= RESET_INTERVAL) {
+                    writer.reset();
+                    written = 0;
+                }
+                writer.flush();
+            }
+        } catch (IOException e) {
+            logger.info("Outbound stream closed : " + e.getMessage());
+        } catch (InterruptedException e) {
+            logger.error("Outbound scheduler interrupted.");
+        } finally {
+            long discarded = 0;
+            for (Serializable object : round) {
+                discarded += estimateSize(object);
+            }
+            synchronized (this) {
+                isRunning = false;
+                isDrained = true;
+                for (Deque<Serializable> queue : queues.values()) {
+                    for (Serializable object : queue) {
+                        discarded += estimateSize(object);
+                    }
+                    queue.clear();
+                }
+                notifyAll();
+            }
+            memoryGovernor.release(discarded);
+        }
+    }
+
+    /**
+     * Stops accepting new objects and waits (for a limited time) for the pending ones to be written.
+     */
+    @Override
+    public synchronized void close() {
+        isRunning = false;
+        notifyAll();
+
+        final long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT;
+        long remaining = CLOSE_TIMEOUT;
+        try {
+            while (!isDrained && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long estimateSize(Serializable object) {
+        if (object instanceof Response) {
+            final Content content = ((Response)object).getContent();
+            if (content instanceof ChunkContent) return OBJECT_OVERHEAD + ((ChunkContent)content).getData().length;
+            if (content instanceof Frame) {
+                long size = OBJECT_OVERHEAD;
+                for (Tile tile : ((Frame)content).getTiles()) {
+                    if (!tile.isReference()) size += tile.getImage().length;
+                }
+                return size;
+            }
+        }
+        return OBJECT_OVERHEAD;
+    }
+
+    private boolean isEmpty() {
+        for (Deque<Serializable> queue : queues.values()) {
+            if (!queue.isEmpty()) return false;
+        }
+        return true;
+    }
+}
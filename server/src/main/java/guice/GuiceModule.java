@@ -3,14 +3,23 @@ package guice;
 import client.ClientProcessor;
 import client.impl.ClientProcessorImpl;
 import com.google.inject.AbstractModule;
+import server.MemoryGovernor;
+import server.ScreenBroadcast;
 import server.ServerServices;
+import server.VoiceMixer;
+import server.impl.MemoryGovernorImpl;
+import server.impl.ScreenBroadcastImpl;
 import server.impl.ServerServicesImpl;
+import server.impl.VoiceMixerImpl;
 
 public class GuiceModule extends AbstractModule {
 
     @Override
     protected void configure() {
         bind(ServerServices.class).to(ServerServicesImpl.class).asEagerSingleton();
+        bind(MemoryGovernor.class).to(MemoryGovernorImpl.class).asEagerSingleton();
+        bind(VoiceMixer.class).to(VoiceMixerImpl.class).asEagerSingleton();
+        bind(ScreenBroadcast.class).to(ScreenBroadcastImpl.class).asEagerSingleton();
         bind(ClientProcessor.class).to(ClientProcessorImpl.class);
     }
 }
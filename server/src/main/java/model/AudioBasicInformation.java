@@ -11,7 +11,7 @@ public class AudioBasicInformation implements Content {
         return new AudioBasicInformation(audioId);
     }
 
-    private AudioBasicInformation(long audioId) {
+    AudioBasicInformation(long audioId) {
         this.audioId = audioId;
     }
 
@@ -1,20 +1,73 @@
 package model;
 
+import model.enums.AudioCodecType;
+
 public class AudioDescriptor extends AudioBasicInformation {
 
     private static final long serialVersionUID = -8297717247921314814L;
+    //Number of chunks of an audio streamed while it is recorded, until it ends.
+    public static final transient long UNKNOWN_CHUNKS_TOTAL_NUMBER = -1;
 
     private long chunksTotalNumber;
+    //Format of the chunks, each of them is encoded on its own. No codec stands for the default audio format.
+    private AudioCodecType codecType;
+    private int sampleRate;
+    //Whether every chunk is tagged as voice or as a run of silence.
+    private boolean silenceSuppressed;
 
     public static AudioDescriptor newInstance(long chunksTotalNumber) {
         return new AudioDescriptor(chunksTotalNumber);
     }
 
+    public static AudioDescriptor newInstance(long chunksTotalNumber, AudioCodecType codecType, int sampleRate) {
+        final AudioDescriptor audioDescriptor = new AudioDescriptor(chunksTotalNumber);
+        audioDescriptor.codecType = codecType;
+        audioDescriptor.sampleRate = sampleRate;
+        return audioDescriptor;
+    }
+
+    public static AudioDescriptor newInstance(long audioId, long chunksTotalNumber) {
+        return new AudioDescriptor(audioId, chunksTotalNumber);
+    }
+
     private AudioDescriptor(long chunksTotalNumber) {
         super();
         this.chunksTotalNumber = chunksTotalNumber;
     }
 
+    private AudioDescriptor(long audioId, long chunksTotalNumber) {
+        super(audioId);
+        this.chunksTotalNumber = chunksTotalNumber;
+    }
+
+    public AudioCodecType getCodecType() {
+        return codecType;
+    }
+
+    public void setCodecType(AudioCodecType codecType) {
+        this.codecType = codecType;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public boolean isSilenceSuppressed() {
+        return silenceSuppressed;
+    }
+
+    public void setSilenceSuppressed(boolean silenceSuppressed) {
+        this.silenceSuppressed = silenceSuppressed;
+    }
+
+    public boolean isStreamed() {
+        return chunksTotalNumber == UNKNOWN_CHUNKS_TOTAL_NUMBER;
+    }
+
     public long getChunksTotalNumber() {
         return chunksTotalNumber;
     }
@@ -28,6 +81,9 @@ public class AudioDescriptor extends AudioBasicInformation {
         return "AudioDescriptor{" +
                 "audioId=" + getAudioId() +
                 ", chunksTotalNumber=" + chunksTotalNumber +
+                ", codecType=" + codecType +
+                ", sampleRate=" + sampleRate +
+                ", silenceSuppressed=" + silenceSuppressed +
                 '}';
     }
 }
@@ -1,15 +1,20 @@
 package model;
 
+import java.util.zip.CRC32;
+
 public abstract class ChunkContent implements Content {
 
     private static final long serialVersionUID = -2706195291822704465L;
 
     private long chunkNumber;
     private byte[] data;
+    //CRC32 of the data, computed by the sender.
+    private long checksum;
 
     ChunkContent(long chunkNumber, byte[] data) {
         this.chunkNumber = chunkNumber;
         this.data = data;
+        this.checksum = computeChecksum(data);
     }
 
     public long getChunkNumber() {
@@ -26,5 +31,24 @@ public abstract class ChunkContent implements Content {
 
     public void setData(byte[] data) {
         this.data = data;
+        this.checksum = computeChecksum(data);
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return true if the data received matches the checksum computed by the sender.
+     */
+    public boolean isValid() {
+        return data != null && checksum == computeChecksum(data);
+    }
+
+    private static long computeChecksum(byte[] data) {
+        if (data == null) return 0;
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
     }
 }
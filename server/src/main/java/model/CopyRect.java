@@ -0,0 +1,69 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * Part of the screen that moved, copied by the viewer from where it was to where it is now.
+ */
+public class CopyRect implements Serializable {
+
+    private static final long serialVersionUID = 2714569273823481706L;
+
+    //Position of the pixels before they moved, in pixels.
+    private int sourceX;
+    private int sourceY;
+    //Position of the pixels once moved.
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+
+    public static CopyRect newInstance(int sourceX, int sourceY, int x, int y, int width, int height) {
+        return new CopyRect(sourceX, sourceY, x, y, width, height);
+    }
+
+    private CopyRect(int sourceX, int sourceY, int x, int y, int width, int height) {
+        this.sourceX = sourceX;
+        this.sourceY = sourceY;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getSourceX() {
+        return sourceX;
+    }
+
+    public int getSourceY() {
+        return sourceY;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public String toString() {
+        return "CopyRect{" +
+                "sourceX=" + sourceX +
+                ", sourceY=" + sourceY +
+                ", x=" + x +
+                ", y=" + y +
+                ", width=" + width +
+                ", height=" + height +
+                '}';
+    }
+}
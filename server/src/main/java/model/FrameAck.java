@@ -0,0 +1,30 @@
+package model;
+
+/**
+ * Sent back by the viewer once a frame of the screen is displayed.
+ */
+public class FrameAck implements Content {
+
+    private static final long serialVersionUID = 5812790353407218866L;
+
+    private long sequenceNumber;
+
+    public static FrameAck newInstance(long sequenceNumber) {
+        return new FrameAck(sequenceNumber);
+    }
+
+    private FrameAck(long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameAck{" +
+                "sequenceNumber=" + sequenceNumber +
+                '}';
+    }
+}
@@ -1,6 +1,60 @@
 package model;
 
+import model.enums.FrameEncoding;
+
+import java.util.List;
+
+/**
+ * Changes of the screen since the previous frame, as the parts of the screen that moved, copied first, then the
+ * images of the tiles that changed.
+ */
 public class PFrame implements Frame {
 
     private static final long serialVersionUID = -8686480955188832049L;
+
+    private long sequenceNumber;
+    private FrameEncoding encoding;
+    private List<CopyRect> copies;
+    private List<Tile> tiles;
+
+    public static PFrame newInstance(long sequenceNumber, FrameEncoding encoding,
+                                     List<CopyRect> copies, List<Tile> tiles) {
+        return new PFrame(sequenceNumber, encoding, copies, tiles);
+    }
+
+    private PFrame(long sequenceNumber, FrameEncoding encoding, List<CopyRect> copies, List<Tile> tiles) {
+        this.sequenceNumber = sequenceNumber;
+        this.encoding = encoding;
+        this.copies = copies;
+        this.tiles = tiles;
+    }
+
+    @Override
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    @Override
+    public FrameEncoding getEncoding() {
+        return encoding;
+    }
+
+    public List<CopyRect> getCopies() {
+        return copies;
+    }
+
+    @Override
+    public List<Tile> getTiles() {
+        return tiles;
+    }
+
+    @Override
+    public String toString() {
+        return "PFrame{" +
+                "sequenceNumber=" + sequenceNumber +
+                ", encoding=" + encoding +
+                ", copies=" + copies +
+                ", tiles=" + tiles.size() +
+                '}';
+    }
 }
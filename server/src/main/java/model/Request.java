@@ -9,16 +9,29 @@ public class Request extends BasePojo {
     private final RequestType type;
     private Content content;
     private final User destination;
+    //Shared by all the requests and responses of a same exchange, such as a transfer.
+    private final long correlationId;
 
+    /**
+     * Builds a request starting a new exchange, its correlation id is its own id.
+     */
     public static Request newInstance(RequestType type, Content content, User destination) {
-        return new Request(type, content, destination);
+        return new Request(type, content, destination, null);
     }
 
-    private Request(RequestType type, Content content, User destination) {
+    /**
+     * Builds a request belonging to the exchange identified by correlationId.
+     */
+    public static Request newInstance(RequestType type, Content content, User destination, long correlationId) {
+        return new Request(type, content, destination, correlationId);
+    }
+
+    private Request(RequestType type, Content content, User destination, Long correlationId) {
         super();
         this.type = type;
         this.content = content;
         this.destination = destination;
+        this.correlationId = (correlationId == null) ? getId() : correlationId;
     }
 
     public RequestType getType() {
@@ -37,12 +50,17 @@ public class Request extends BasePojo {
         return destination;
     }
 
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
     @Override
     public String toString() {
         return "Request{" +
                 "type=" + type +
                 ", content=" + content +
                 ", destination=" + destination +
+                ", correlationId=" + correlationId +
                 '}';
     }
 }
@@ -0,0 +1,80 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * Square part of the screen, either encoded or as a reference to a tile with the same pixels sent before.
+ */
+public class Tile implements Serializable {
+
+    private static final long serialVersionUID = 4410238790625153382L;
+
+    //Position of the tile in the screen, in pixels.
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+    //Hash of the pixels, identifying the tile in the caches of the streamer and the viewer.
+    private long hash;
+    //Null for a reference.
+    private byte[] image;
+
+    public static Tile newInstance(int x, int y, int width, int height, long hash, byte[] image) {
+        return new Tile(x, y, width, height, hash, image);
+    }
+
+    private Tile(int x, int y, int width, int height, long hash, byte[] image) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.hash = hash;
+        this.image = image;
+    }
+
+    /**
+     * @return The same tile without its image, to be taken from the cache of the viewer.
+     */
+    public Tile toReference() {
+        return new Tile(x, y, width, height, hash, null);
+    }
+
+    public boolean isReference() {
+        return image == null;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public byte[] getImage() {
+        return image;
+    }
+
+    @Override
+    public String toString() {
+        return "Tile{" +
+                "x=" + x +
+                ", y=" + y +
+                ", width=" + width +
+                ", height=" + height +
+                ", isReference=" + isReference() +
+                '}';
+    }
+}
@@ -0,0 +1,12 @@
+package model.enums;
+
+import java.io.Serializable;
+
+public enum FrameEncoding implements Serializable {
+    //Lossy, the smallest frames for photos and videos, with a tunable quality.
+    JPEG,
+    //Raw pixels compressed as fast as possible.
+    DEFLATE,
+    //Lossless, each pixel predicted from its left neighbour before compression, suited to text and flat areas.
+    SCREEN
+}
@@ -4,33 +4,67 @@ import java.io.Serializable;
 
 public enum RequestType implements Serializable {
     //To request a connection to the server.
-    CONNECT,
+    CONNECT(TrafficClass.CONTROL),
     //To alert the server of the client's will to disconnect.
-    DISCONNECT,
+    DISCONNECT(TrafficClass.CONTROL),
     //To send a message.
-    SEND_MESSAGE,
+    SEND_MESSAGE(TrafficClass.CHAT),
     //Prepare the server to send a file.
-    PREPARE_SEND_FILE,
+    PREPARE_SEND_FILE(TrafficClass.CONTROL),
     //To send a file.
-    SEND_FILE,
+    SEND_FILE(TrafficClass.BULK),
+    //To send the digest of a file, after its chunks.
+    SEND_FILE_DIGEST(TrafficClass.BULK),
     //To request information about a file.
-    PREPARE_REQUEST_FILE,
+    PREPARE_REQUEST_FILE(TrafficClass.CONTROL),
     //To request a file.
-    REQUEST_FILE,
+    REQUEST_FILE(TrafficClass.CONTROL),
+    //To request some chunks of a file again.
+    REQUEST_FILE_CHUNKS(TrafficClass.CONTROL),
     //Prepare the server to send an audio file.
-    PREPARE_SEND_AUDIO,
+    PREPARE_SEND_AUDIO(TrafficClass.CONTROL),
     //To send an audio file.
-    SEND_AUDIO,
+    SEND_AUDIO(TrafficClass.BULK),
+    //To end a streamed audio file, after its chunks.
+    SEND_AUDIO_END(TrafficClass.BULK),
     //To request information about an audio file.
-    PREPARE_REQUEST_AUDIO,
+    PREPARE_REQUEST_AUDIO(TrafficClass.CONTROL),
     //To request an audio file.
-    REQUEST_AUDIO,
+    REQUEST_AUDIO(TrafficClass.CONTROL),
+    //To cancel an upload, or a download from the destination.
+    CANCEL_TRANSFER(TrafficClass.CONTROL),
     //To request the control of the destination's computer
-    REQUEST_CONTROL,
+    REQUEST_CONTROL(TrafficClass.CONTROL),
     //To send a frame
-    SEND_FRAME,
+    SEND_FRAME(TrafficClass.MEDIA),
     //Stop sending frames
-    STOP_CONTROL,
+    STOP_CONTROL(TrafficClass.CONTROL),
     //Request an event
-    PROVOKE_EVENT
+    PROVOKE_EVENT(TrafficClass.CHAT),
+    //To acknowledge a frame once displayed, so that the frames are sent at the pace they are displayed.
+    ACKNOWLEDGE_FRAME(TrafficClass.CONTROL),
+    //To call the destination.
+    CALL(TrafficClass.CONTROL),
+    //To accept a call from the destination.
+    ACCEPT_CALL(TrafficClass.CONTROL),
+    //To decline or hang up a call with the destination.
+    END_CALL(TrafficClass.CONTROL),
+    //To send a frame of live voice during a call.
+    SEND_VOICE_FRAME(TrafficClass.MEDIA),
+    //To join a voice room, leaving the previous one.
+    JOIN_ROOM(TrafficClass.CONTROL),
+    //To leave the current voice room.
+    LEAVE_ROOM(TrafficClass.CONTROL),
+    //To send a frame of live voice to the current voice room.
+    SEND_ROOM_VOICE_FRAME(TrafficClass.MEDIA);
+
+    private final TrafficClass trafficClass;
+
+    RequestType(TrafficClass trafficClass) {
+        this.trafficClass = trafficClass;
+    }
+
+    public TrafficClass getTrafficClass() {
+        return trafficClass;
+    }
 }
@@ -4,46 +4,86 @@ import java.io.Serializable;
 
 public enum ResponseType implements Serializable {
     //User successfully connected, initialize the context with all the currently connected users.
-    CONNECTED,
+    CONNECTED(TrafficClass.CONTROL),
     //Text message received.
-    MESSAGE,
+    MESSAGE(TrafficClass.CHAT),
     //Text message successfully sent.
-    MESSAGE_SENT,
+    MESSAGE_SENT(TrafficClass.CHAT),
     //Prepare the user to receive a file.
-    PREPARE_RECEIVE_FILE,
+    PREPARE_RECEIVE_FILE(TrafficClass.CONTROL),
     //File chunk (chunks of bytes representing a file).
-    FILE_CHUNK,
+    FILE_CHUNK(TrafficClass.BULK),
+    //Digest of a file, sent after its chunks.
+    FILE_DIGEST(TrafficClass.BULK),
+    //Some chunks of a file were corrupted or missing, they have to be sent again.
+    RESEND_FILE_CHUNKS(TrafficClass.CONTROL),
     //File message received (name of a file).
-    FILE_MESSAGE,
+    FILE_MESSAGE(TrafficClass.CHAT),
     //Can send the file.
-    CAN_SEND_FILE,
+    CAN_SEND_FILE(TrafficClass.CONTROL),
     //File successfully sent.
-    FILE_SENT,
+    FILE_SENT(TrafficClass.CHAT),
     //A user just connected.
-    ADD_USER,
+    ADD_USER(TrafficClass.CONTROL),
     //A user just disconnected.
-    REMOVE_USER,
+    REMOVE_USER(TrafficClass.CONTROL),
 
     //Prepare the user to receive a file.
-    PREPARE_RECEIVE_AUDIO,
+    PREPARE_RECEIVE_AUDIO(TrafficClass.CONTROL),
     //File chunk (chunks of bytes representing a file).
-    AUDIO_CHUNK,
+    AUDIO_CHUNK(TrafficClass.BULK),
+    //End of a streamed audio file, sent after its chunks.
+    AUDIO_END(TrafficClass.BULK),
     //File message received (name of a file).
-    AUDIO_MESSAGE,
+    AUDIO_MESSAGE(TrafficClass.CHAT),
     //Can send the file.
-    CAN_SEND_AUDIO,
+    CAN_SEND_AUDIO(TrafficClass.CONTROL),
     //File successfully sent.
-    AUDIO_SENT,
+    AUDIO_SENT(TrafficClass.CHAT),
 
     //Control request received
-    CONTROL_REQUEST,
+    CONTROL_REQUEST(TrafficClass.CONTROL),
     //Receive a frame
-    FRAME,
+    FRAME(TrafficClass.MEDIA),
     //Stop sending frames
-    END_CONTROL,
+    END_CONTROL(TrafficClass.CONTROL),
     //Event provoked by controlling user
-    PROVOKE_EVENT,
+    PROVOKE_EVENT(TrafficClass.CHAT),
+    //Frame displayed by the controlling user.
+    FRAME_ACKNOWLEDGED(TrafficClass.CONTROL),
+
+    //Call received.
+    CALL_REQUEST(TrafficClass.CONTROL),
+    //Call accepted by the user called.
+    CALL_ACCEPTED(TrafficClass.CONTROL),
+    //Call declined or hung up.
+    CALL_ENDED(TrafficClass.CONTROL),
+    //Frame of live voice received during a call.
+    VOICE_FRAME(TrafficClass.MEDIA),
+    //Voice room joined, with the format of its frames.
+    ROOM_JOINED(TrafficClass.CONTROL),
+    //Frame of the voices of a room, mixed by the server.
+    ROOM_VOICE_FRAME(TrafficClass.MEDIA),
+
+    //Not enough memory on the server for now, the transfer will be accepted later.
+    WAITING_FOR_MEMORY(TrafficClass.CONTROL),
+    //A transfer has been cancelled, by the user or because it was abandoned.
+    TRANSFER_CANCELLED(TrafficClass.CONTROL),
 
     //Errors.
-    WRONG_PARAMETERS, DESTINATION_NOT_FOUND, INTERNAL_SERVER_ERROR, INSUFFICIENT_MEMORY
+    WRONG_PARAMETERS(TrafficClass.CONTROL),
+    DESTINATION_NOT_FOUND(TrafficClass.CONTROL),
+    INTERNAL_SERVER_ERROR(TrafficClass.CONTROL),
+    INSUFFICIENT_MEMORY(TrafficClass.CONTROL),
+    CORRUPTED_FILE(TrafficClass.CONTROL);
+
+    private final TrafficClass trafficClass;
+
+    ResponseType(TrafficClass trafficClass) {
+        this.trafficClass = trafficClass;
+    }
+
+    public TrafficClass getTrafficClass() {
+        return trafficClass;
+    }
 }
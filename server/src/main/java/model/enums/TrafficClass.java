@@ -0,0 +1,32 @@
+package model.enums;
+
+import java.io.Serializable;
+
+public enum TrafficClass implements Serializable {
+    //Connection management, transfer handshakes and errors.
+    CONTROL(8, false),
+    //Text messages, notifications and input events.
+    CHAT(4, false),
+    //Screen frames and live audio.
+    MEDIA(2, true),
+    //File and audio chunks.
+    BULK(1, true);
+
+    //Number of objects a class may write during one draining round.
+    private final int weight;
+    //Whether producers are blocked when too many objects of this class are pending.
+    private final boolean bounded;
+
+    TrafficClass(int weight, boolean bounded) {
+        this.weight = weight;
+        this.bounded = bounded;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+}
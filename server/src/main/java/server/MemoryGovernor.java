@@ -0,0 +1,27 @@
+package server;
+
+import client.ClientProcessor;
+
+public interface MemoryGovernor {
+
+    enum Admission {
+        //The memory has been reserved.
+        GRANTED,
+        //The memory will be reserved, and the callback run, once enough of it is released.
+        QUEUED,
+        //The memory requested exceeds what the server can ever reserve.
+        REJECTED
+    }
+
+    Admission admit(ClientProcessor owner, long bytes, Runnable onAdmission);
+    void withdraw(ClientProcessor owner);
+    void withdraw(Runnable onAdmission);
+    void reserve(long bytes);
+    /**
+     * Reserves memory received bit by bit, for a transfer already admitted.
+     * @return false if it does not fit in the budget, nothing is reserved then.
+     */
+    boolean tryReserve(long bytes);
+    void release(long bytes);
+    long getAvailable();
+}
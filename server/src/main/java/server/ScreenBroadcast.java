@@ -0,0 +1,53 @@
+package server;
+
+import client.ClientProcessor;
+import model.Frame;
+import model.User;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Fans the frames of a screen stream out to all its viewers, the streamer encoding them once whatever their number.
+ *
+ * The latest key frame and the frames since are kept, so that a viewer joining a stream in progress is brought up
+ * to date at once, without asking the streamer for a new key frame.
+ */
+public interface ScreenBroadcast {
+
+    /**
+     * Adds a viewer to the stream of a user, sending it the frames kept if the stream is in progress. Waits for the
+     * queue of the viewer, to be called by its own Thread.
+     * @return true if the stream is new, the streamer then has to be asked to start it.
+     */
+    boolean join(long streamerId, ClientProcessor client, User viewer) throws IOException;
+
+    /**
+     * @return true if nobody views the stream anymore, the streamer then has to stop it.
+     */
+    boolean leave(long streamerId, long viewerId);
+
+    /**
+     * Removes a user leaving the server from the streams it views.
+     * @return The ids of the streamers left without any viewer.
+     */
+    List<Long> leaveAll(long userId);
+
+    /**
+     * Drops the stream of a user leaving the server.
+     * @return The clients of its viewers, to be told the stream ended.
+     */
+    List<ClientProcessor> end(long streamerId);
+
+    /**
+     * Sends a frame to all the viewers of the stream of the user, without waiting for any of them.
+     * @return false if nobody views the stream.
+     */
+    boolean receiveFrame(User streamer, Frame frame);
+
+    /**
+     * The streamer paces its frames on the slowest viewer, a frame is acknowledged once all of them displayed it.
+     * @return The sequence number to acknowledge to the streamer, or -1 if the slowest viewer did not move forward.
+     */
+    long acknowledgeFrame(long streamerId, long viewerId, long sequenceNumber);
+}
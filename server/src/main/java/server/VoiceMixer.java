@@ -0,0 +1,22 @@
+package server;
+
+import client.ClientProcessor;
+import model.RoomInformation;
+import model.User;
+import model.VoiceFrame;
+import model.enums.AudioCodecType;
+
+public interface VoiceMixer {
+
+    //Sample rate of the voice exchanged in every room.
+    int SAMPLE_RATE = 16000;
+
+    /**
+     * Adds a user to a room, after removing it from the room it was in.
+     * @param codecType The codec of the frames sent by the user, and of the ones it receives.
+     * @return The format of the frames of the room.
+     */
+    RoomInformation join(String name, ClientProcessor client, User user, AudioCodecType codecType);
+    void leave(long userId);
+    void receiveFrame(long userId, VoiceFrame frame);
+}
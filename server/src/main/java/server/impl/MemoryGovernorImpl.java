@@ -0,0 +1,112 @@
+package server.impl;
+
+import client.ClientProcessor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import server.MemoryGovernor;
+
+import java.util.*;
+
+/**
+ * Keeps track of the memory held by the in-flight transfers, the relayed frames and the outbound queues of every
+ * client, so that the transfers are only accepted when the server actually has room for them.
+ */
+public class MemoryGovernorImpl implements MemoryGovernor {
+
+    private static final Logger logger = LogManager.getLogger(MemoryGovernorImpl.class);
+
+    //Share of the maximum heap size that can be reserved, the rest is left to the server itself.
+    private static final double HEAP_SHARE = 0.6;
+
+    private final long budget;
+    private long reserved = 0;
+
+    //Admissions waiting for memory to be released, in their arrival order.
+    private final Deque<PendingAdmission> pendingAdmissions = new LinkedList<>();
+
+    public MemoryGovernorImpl() {
+        this.budget = (long)(Runtime.getRuntime().maxMemory() * HEAP_SHARE);
+        logger.info("Memory budget : " + budget + " bytes.");
+    }
+
+    @Override
+    public Admission admit(ClientProcessor owner, long bytes, Runnable onAdmission) {
+        if (bytes > budget) return Admission.REJECTED;
+
+        synchronized (this) {
+            //Earlier admissions go first, otherwise a large transfer could wait forever behind smaller ones.
+            if (pendingAdmissions.isEmpty() && reserved + bytes <= budget) {
+                reserved += bytes;
+                return Admission.GRANTED;
+            }
+            pendingAdmissions.addLast(new PendingAdmission(owner, bytes, onAdmission));
+        }
+        logger.info("Admission of " + bytes + " bytes queued, " + getAvailable() + " bytes available.");
+        return Admission.QUEUED;
+    }
+
+    @Override
+    public synchronized void withdraw(ClientProcessor owner) {
+        pendingAdmissions.removeIf(pendingAdmission -> pendingAdmission.owner == owner);
+    }
+
+    @Override
+    public synchronized void withdraw(Runnable onAdmission) {
+        pendingAdmissions.removeIf(pendingAdmission -> pendingAdmission.onAdmission == onAdmission);
+    }
+
+    /**
+     * Reserves memory that can not be refused (objects already received), the admissions are then delayed until
+     * it is released.
+     */
+    @Override
+    public synchronized void reserve(long bytes) {
+        reserved += bytes;
+    }
+
+    /**
+     * The parts of a transfer already admitted go before the admissions waiting, they only have to fit in the budget.
+     */
+    @Override
+    public synchronized boolean tryReserve(long bytes) {
+        if (reserved + bytes > budget) return false;
+        reserved += bytes;
+        return true;
+    }
+
+    @Override
+    public void release(long bytes) {
+        final List<Runnable> admitted = new LinkedList<>();
+        synchronized (this) {
+            reserved = Math.max(0, reserved - bytes);
+            while (!pendingAdmissions.isEmpty() && reserved + pendingAdmissions.peekFirst().bytes <= budget) {
+                final PendingAdmission pendingAdmission = pendingAdmissions.pollFirst();
+                reserved += pendingAdmission.bytes;
+                admitted.add(pendingAdmission.onAdmission);
+            }
+        }
+
+        //The callbacks are run outside of the lock as they send responses to the clients.
+        for (Runnable onAdmission : admitted) {
+            onAdmission.run();
+        }
+    }
+
+    @Override
+    public synchronized long getAvailable() {
+        return budget - reserved;
+    }
+
+    private static class PendingAdmission {
+
+        private final ClientProcessor owner;
+        private final long bytes;
+        private final Runnable onAdmission;
+
+        private PendingAdmission(ClientProcessor owner, long bytes, Runnable onAdmission) {
+            this.owner = owner;
+            this.bytes = bytes;
+            this.onAdmission = onAdmission;
+        }
+    }
+}
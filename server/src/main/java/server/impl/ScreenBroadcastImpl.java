@@ -0,0 +1,247 @@
+package server.impl;
+
+import client.ClientProcessor;
+import model.Frame;
+import model.IFrame;
+import model.Response;
+import model.Tile;
+import model.User;
+import model.enums.ResponseType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import server.ScreenBroadcast;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Keeps a stream per streamer, with its viewers and the frames since the latest key frame.
+ *
+ * The frames are sent to the viewers in order, the partial frames and the references to the tiles sent before only
+ * make sense over all the frames before them. A viewer missing a frame, because it is too slow or joined when too
+ * many frames were sent since the key frame to be kept, waits for the next key frame. Otherwise a viewer joining is
+ * sent all the frames kept.
+ */
+public class ScreenBroadcastImpl implements ScreenBroadcast {
+
+    private static final Logger logger = LogManager.getLogger(ScreenBroadcastImpl.class);
+
+    //Size of the frames kept after a key frame, beyond which the viewers joining wait for the next one, in bytes.
+    private static final long MAX_KEPT_SIZE = 16 * 1024 * 1024;
+    //Frames received while a viewer catches up, beyond which it waits for the next key frame.
+    private static final int MAX_BACKLOG_FRAMES = 256;
+
+    private final Map<Long, Stream> streams = new HashMap<>();
+
+    @Override
+    public boolean join(long streamerId, ClientProcessor client, User viewer) throws IOException {
+        final boolean isNew;
+        final Stream stream;
+        final Viewer joining;
+        final User streamer;
+        List<Frame> frames;
+        synchronized (streams) {
+            Stream existing = streams.get(streamerId);
+            isNew = (existing == null);
+            if (isNew) {
+                existing = new Stream();
+                streams.put(streamerId, existing);
+            }
+            stream = existing;
+            synchronized (stream) {
+                joining = new Viewer(client, stream.lastAcknowledged);
+                joining.isWaitingForKeyFrame = !stream.isComplete;
+                frames = stream.isComplete ? new ArrayList<>(stream.frames) : Collections.emptyList();
+                if (!frames.isEmpty()) joining.backlog = new ArrayList<>();
+                streamer = stream.streamer;
+                stream.viewers.put(viewer.getId(), joining);
+            }
+        }
+        logger.info(viewer + " joined the screen stream of " + streamerId + ", " + (joining.isWaitingForKeyFrame
+                ? "waiting for a key frame"
+                : frames.size() + " frames to catch up"));
+
+        //The frames kept are sent by the Thread of the viewer without any lock, so that only the viewer waits for
+        //its queue. The frames received meanwhile wait in its backlog, sent in turn until it is empty.
+        while (!frames.isEmpty()) {
+            for (Frame frame : frames) {
+                client.sendResponse(Response.newInstance(ResponseType.FRAME, frame, streamer));
+            }
+            synchronized (stream) {
+                //The backlog overflowed, the viewer waits for the next key frame.
+                if (joining.backlog == null) break;
+                frames = joining.backlog;
+                joining.backlog = frames.isEmpty() ? null : new ArrayList<>();
+            }
+        }
+        return isNew;
+    }
+
+    @Override
+    public boolean leave(long streamerId, long viewerId) {
+        synchronized (streams) {
+            final Stream stream = streams.get(streamerId);
+            if (stream == null) return true;
+            synchronized (stream) {
+                stream.viewers.remove(viewerId);
+                if (!stream.viewers.isEmpty()) return false;
+            }
+            streams.remove(streamerId);
+            return true;
+        }
+    }
+
+    @Override
+    public List<Long> leaveAll(long userId) {
+        final List<Long> abandoned = new ArrayList<>();
+        synchronized (streams) {
+            final Iterator<Map.Entry<Long, Stream>> iterator = streams.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<Long, Stream> entry = iterator.next();
+                synchronized (entry.getValue()) {
+                    if (entry.getValue().viewers.remove(userId) == null || !entry.getValue().viewers.isEmpty()) {
+                        continue;
+                    }
+                }
+                iterator.remove();
+                abandoned.add(entry.getKey());
+            }
+        }
+        return abandoned;
+    }
+
+    @Override
+    public List<ClientProcessor> end(long streamerId) {
+        final Stream stream;
+        synchronized (streams) {
+            stream = streams.remove(streamerId);
+        }
+        final List<ClientProcessor> viewers = new ArrayList<>();
+        if (stream == null) return viewers;
+        synchronized (stream) {
+            for (Viewer viewer : stream.viewers.values()) {
+                viewers.add(viewer.client);
+            }
+            stream.viewers.clear();
+        }
+        logger.info("Screen stream of " + streamerId + " ended, " + viewers.size() + " viewers left");
+        return viewers;
+    }
+
+    @Override
+    public boolean receiveFrame(User streamer, Frame frame) {
+        final Stream stream;
+        synchronized (streams) {
+            stream = streams.get(streamer.getId());
+        }
+        if (stream == null) return false;
+
+        //Only the frames are kept under the lock, they are sent once released.
+        final List<Viewer> recipients = new ArrayList<>();
+        synchronized (stream) {
+            if (stream.viewers.isEmpty()) return false;
+            stream.streamer = streamer;
+            stream.keep(frame);
+            for (Viewer viewer : stream.viewers.values()) {
+                if (frame instanceof IFrame) viewer.isWaitingForKeyFrame = false;
+                if (viewer.isWaitingForKeyFrame) continue;
+                if (viewer.backlog == null) {
+                    recipients.add(viewer);
+                } else if (viewer.backlog.size() < MAX_BACKLOG_FRAMES) {
+                    viewer.backlog.add(frame);
+                } else {
+                    viewer.backlog = null;
+                    viewer.isWaitingForKeyFrame = true;
+                }
+            }
+        }
+        //The frames are sent by the Thread reading the requests of the streamer, which must never wait for a viewer:
+        //a viewer whose queue is full misses the frame and waits for the next key frame.
+        final Response response = Response.newInstance(ResponseType.FRAME, frame, streamer);
+        for (Viewer viewer : recipients) {
+            if (!viewer.client.offerResponse(response)) {
+                logger.warn("Screen frame " + frame.getSequenceNumber() + " dropped for a slow viewer");
+                synchronized (stream) {
+                    viewer.isWaitingForKeyFrame = true;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long acknowledgeFrame(long streamerId, long viewerId, long sequenceNumber) {
+        final Stream stream;
+        synchronized (streams) {
+            stream = streams.get(streamerId);
+        }
+        if (stream == null) return -1;
+
+        synchronized (stream) {
+            final Viewer viewer = stream.viewers.get(viewerId);
+            if (viewer == null) return -1;
+            viewer.lastAcknowledged = Math.max(viewer.lastAcknowledged, sequenceNumber);
+
+            //The viewers waiting for a key frame do not hold the others back.
+            long slowest = Long.MAX_VALUE;
+            for (Viewer other : stream.viewers.values()) {
+                if (!other.isWaitingForKeyFrame) slowest = Math.min(slowest, other.lastAcknowledged);
+            }
+            if (slowest == Long.MAX_VALUE || slowest <= stream.lastAcknowledged) return -1;
+            stream.lastAcknowledged = slowest;
+            return slowest;
+        }
+    }
+
+    private static class Stream {
+        private final Map<Long, Viewer> viewers = new LinkedHashMap<>();
+        //Latest key frame and the frames since, complete until too many of them are sent.
+        private final List<Frame> frames = new ArrayList<>();
+        private long keptSize = 0;
+        private boolean isComplete = false;
+        private long lastAcknowledged = -1;
+        //Source of the frames, known once the first one is received.
+        private User streamer;
+
+        private void keep(Frame frame) {
+            if (frame instanceof IFrame) {
+                frames.clear();
+                keptSize = 0;
+                isComplete = true;
+            }
+            if (!isComplete) return;
+
+            final long size = getSize(frame);
+            if (!frames.isEmpty() && keptSize + size > MAX_KEPT_SIZE) {
+                logger.debug("Frames dropped from the stream cache until the next key frame : " + frames.size());
+                frames.clear();
+                keptSize = 0;
+                isComplete = false;
+                return;
+            }
+            frames.add(frame);
+            keptSize += size;
+        }
+
+        private static long getSize(Frame frame) {
+            long size = 0;
+            for (Tile tile : frame.getTiles()) {
+                if (!tile.isReference()) size += tile.getImage().length;
+            }
+            return size;
+        }
+    }
+
+    private static class Viewer {
+        private final ClientProcessor client;
+        private long lastAcknowledged;
+        private boolean isWaitingForKeyFrame;
+        //Frames received while the kept ones are sent to the viewer joining, null once it caught up.
+        private List<Frame> backlog;
+
+        private Viewer(ClientProcessor client, long lastAcknowledged) {
+            this.client = client;
+            this.lastAcknowledged = lastAcknowledged;
+        }
+    }
+}
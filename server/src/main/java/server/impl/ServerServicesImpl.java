@@ -2,22 +2,35 @@ package server.impl;
 
 import client.ClientProcessor;
 import client.impl.ClientProcessorImpl;
+import com.google.inject.Inject;
 import model.User;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import server.MemoryGovernor;
 import server.ServerServices;
+import server.ScreenBroadcast;
+import server.VoiceMixer;
 
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 
 public class ServerServicesImpl implements ServerServices {
 
     private static final Logger logger = LogManager.getLogger(ServerServicesImpl.class);
 
+    //Interval between two checks for abandoned transfers.
+    private static final long RECLAIM_INTERVAL = 10000;
+
+    @Inject private MemoryGovernor memoryGovernor;
+    @Inject private VoiceMixer voiceMixer;
+    @Inject private ScreenBroadcast screenBroadcast;
+
     private ServerSocket server = null;
     private boolean isRunning = true;
 
@@ -42,7 +55,8 @@ public class ServerServicesImpl implements ServerServices {
                 try {
                     Socket client = server.accept();
                     logger.info("Client Connection received.");
-                    Thread t1 = new Thread(new ClientProcessorImpl(client, this));
+                    Thread t1 = new Thread(new ClientProcessorImpl(client, this, memoryGovernor, voiceMixer,
+                            screenBroadcast));
                     t1.start();
                 } catch (IOException e) {
                     e.printStackTrace();
@@ -58,6 +72,26 @@ public class ServerServicesImpl implements ServerServices {
         });
 
         t.start();
+
+        //Reclaims the memory of the transfers whose clients stopped sending chunks.
+        Thread reaper = new Thread(() -> {
+            while (isRunning) {
+                try {
+                    Thread.sleep(RECLAIM_INTERVAL);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                final List<ClientProcessor> currentClients;
+                synchronized (clients) {
+                    currentClients = new ArrayList<>(clients.values());
+                }
+                for (ClientProcessor clientProcessor : currentClients) {
+                    clientProcessor.reclaimIdleTransfers();
+                }
+            }
+        });
+        reaper.setDaemon(true);
+        reaper.start();
     }
 
     @Override
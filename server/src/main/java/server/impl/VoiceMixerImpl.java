@@ -0,0 +1,258 @@
+package server.impl;
+
+import client.ClientProcessor;
+import model.Response;
+import model.RoomInformation;
+import model.User;
+import model.VoiceFrame;
+import model.enums.AudioCodecType;
+import model.enums.ResponseType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import server.VoiceMixer;
+import util.voice.AudioCodec;
+import util.voice.AudioCodecs;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mixes the voices of every room into a single stream per listener, without the listener's own voice.
+ *
+ * Every VoiceFrame.DURATION ms a tick hands each room to a pool of workers sized on the number of cores, a room being
+ * mixed by one worker at a time. A room still being mixed when the next tick comes skips that tick, so that a late
+ * room never delays the others.
+ */
+public class VoiceMixerImpl implements VoiceMixer {
+
+    private static final Logger logger = LogManager.getLogger(VoiceMixerImpl.class);
+
+    private static final int FRAME_SAMPLES = SAMPLE_RATE * VoiceFrame.DURATION / 1000;
+    //Frames buffered for a participant before it is mixed, to absorb the irregularities of the network.
+    private static final int PREBUFFER_FRAMES = 2;
+    //Beyond this number of pending frames, the oldest ones are dropped to bound the delay added by the mixer.
+    private static final int MAX_PENDING_FRAMES = 5;
+
+    private final Map<String, Room> rooms = new HashMap<>();
+    private final Map<Long, Room> participantRooms = new HashMap<>();
+
+    private final ExecutorService workers;
+
+    public VoiceMixerImpl() {
+        workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), VoiceMixerImpl::newDaemon);
+        final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(VoiceMixerImpl::newDaemon);
+        ticker.scheduleAtFixedRate(this::tick, VoiceFrame.DURATION, VoiceFrame.DURATION, TimeUnit.MILLISECONDS);
+    }
+
+    private static Thread newDaemon(Runnable runnable) {
+        final Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @Override
+    public RoomInformation join(String name, ClientProcessor client, User user, AudioCodecType codecType) {
+        this.leave(user.getId());
+        synchronized (rooms) {
+            Room room = rooms.get(name);
+            if (room == null) {
+                room = new Room(name);
+                rooms.put(name, room);
+            }
+            synchronized (room.participants) {
+                room.participants.put(user.getId(), new Participant(client, codecType));
+            }
+            participantRooms.put(user.getId(), room);
+        }
+        logger.info(user + " joined the room : " + name);
+        return RoomInformation.newInstance(name, codecType, SAMPLE_RATE);
+    }
+
+    @Override
+    public void leave(long userId) {
+        synchronized (rooms) {
+            final Room room = participantRooms.remove(userId);
+            if (room == null) return;
+            synchronized (room.participants) {
+                room.participants.remove(userId);
+                if (room.participants.isEmpty()) rooms.remove(room.name);
+            }
+        }
+    }
+
+    @Override
+    public void receiveFrame(long userId, VoiceFrame frame) {
+        final Room room;
+        synchronized (rooms) {
+            room = participantRooms.get(userId);
+        }
+        if (room == null) return;
+
+        final Participant participant;
+        synchronized (room.participants) {
+            participant = room.participants.get(userId);
+        }
+        if (participant != null) participant.add(frame.getData());
+    }
+
+    private void tick() {
+        final List<Room> currentRooms;
+        synchronized (rooms) {
+            currentRooms = new ArrayList<>(rooms.values());
+        }
+        for (Room room : currentRooms) {
+            if (!room.isMixing.compareAndSet(false, true)) {
+                logger.warn("Room " + room.name + " skipped a tick, its previous mix is not over.");
+                continue;
+            }
+            workers.execute(() -> {
+                try {
+                    room.mix();
+                } catch (RuntimeException e) {
+                    logger.error("Exception while mixing room " + room.name + " : " + e.getMessage());
+                } finally {
+                    room.isMixing.set(false);
+                }
+            });
+        }
+    }
+
+    private static class Room {
+        private final String name;
+        private final Map<Long, Participant> participants = new LinkedHashMap<>();
+        private final AtomicBoolean isMixing = new AtomicBoolean(false);
+        //Encoders of the mix sent to the listeners not speaking, shared by codec.
+        private final Map<AudioCodecType, AudioCodec> encoders = new EnumMap<>(AudioCodecType.class);
+        private long sequenceNumber = 0;
+        private boolean isSilent = true;
+
+        private Room(String name) {
+            this.name = name;
+        }
+
+        private void mix() {
+            final List<Participant> listeners;
+            synchronized (participants) {
+                listeners = new ArrayList<>(participants.values());
+            }
+            final long frameSequenceNumber = sequenceNumber++;
+
+            final int[] sum = new int[FRAME_SAMPLES];
+            final Map<Participant, short[]> voices = new HashMap<>();
+            for (Participant participant : listeners) {
+                final short[] voice = participant.poll();
+                if (voice == null) continue;
+                voices.put(participant, voice);
+                for (int i = 0; i < voice.length; i++) {
+                    sum[i] += voice[i];
+                }
+            }
+            //Only the first frame of a silence is sent, empty, like the participants do.
+            if (voices.isEmpty()) {
+                if (!isSilent) sendSilence(listeners, frameSequenceNumber);
+                isSilent = true;
+                return;
+            }
+            isSilent = false;
+
+            //The mix without any own voice is the same for all the listeners not speaking, it is encoded once.
+            final Map<AudioCodecType, byte[]> sharedMixes = new EnumMap<>(AudioCodecType.class);
+            for (Participant listener : listeners) {
+                final short[] ownVoice = voices.get(listener);
+                final byte[] data;
+                if (ownVoice != null) {
+                    //Nobody else speaks.
+                    if (voices.size() == 1) continue;
+                    data = listener.encoder.encode(toPcm(sum, ownVoice), FRAME_SAMPLES * 2);
+                } else {
+                    byte[] sharedMix = sharedMixes.get(listener.codecType);
+                    if (sharedMix == null) {
+                        AudioCodec encoder = encoders.get(listener.codecType);
+                        if (encoder == null) {
+                            encoder = AudioCodecs.newCodec(listener.codecType);
+                            encoders.put(listener.codecType, encoder);
+                        }
+                        sharedMix = encoder.encode(toPcm(sum, null), FRAME_SAMPLES * 2);
+                        sharedMixes.put(listener.codecType, sharedMix);
+                    }
+                    data = sharedMix;
+                }
+
+                //Live voice is useless once late, the frame is dropped rather than waiting for a slow listener.
+                listener.client.offerResponse(Response.newInstance(
+                        ResponseType.ROOM_VOICE_FRAME,
+                        VoiceFrame.newInstance(frameSequenceNumber, data),
+                        null));
+            }
+        }
+
+        private static void sendSilence(List<Participant> listeners, long frameSequenceNumber) {
+            for (Participant listener : listeners) {
+                listener.client.offerResponse(Response.newInstance(
+                        ResponseType.ROOM_VOICE_FRAME,
+                        VoiceFrame.newInstance(frameSequenceNumber, new byte[0]),
+                        null));
+            }
+        }
+
+        private static byte[] toPcm(int[] sum, short[] ownVoice) {
+            final byte[] pcm = new byte[FRAME_SAMPLES * 2];
+            for (int i = 0; i < FRAME_SAMPLES; i++) {
+                int sample = sum[i];
+                if (ownVoice != null) sample -= ownVoice[i];
+                sample = Math.min(Math.max(sample, Short.MIN_VALUE), Short.MAX_VALUE);
+                pcm[2 * i] = (byte) sample;
+                pcm[2 * i + 1] = (byte) (sample >> 8);
+            }
+            return pcm;
+        }
+    }
+
+    private static class Participant {
+        private final ClientProcessor client;
+        private final AudioCodecType codecType;
+        private final AudioCodec decoder;
+        private final AudioCodec encoder;
+        private final Deque<byte[]> frames = new ArrayDeque<>();
+        private boolean isBuffering = true;
+
+        private Participant(ClientProcessor client, AudioCodecType codecType) {
+            this.client = client;
+            this.codecType = codecType;
+            this.decoder = AudioCodecs.newCodec(codecType);
+            this.encoder = AudioCodecs.newCodec(codecType);
+        }
+
+        private synchronized void add(byte[] data) {
+            frames.addLast(data);
+            while (frames.size() > MAX_PENDING_FRAMES) {
+                frames.pollFirst();
+            }
+        }
+
+        /**
+         * @return The next frame of the participant decoded, or null if it is silent or still buffering.
+         */
+        private short[] poll() {
+            final byte[] data;
+            synchronized (this) {
+                if (isBuffering && frames.size() < PREBUFFER_FRAMES) return null;
+                data = frames.pollFirst();
+                isBuffering = (data == null);
+            }
+            //Empty frames mark the silences of the participant.
+            if (data == null || data.length == 0) return null;
+
+            final byte[] pcm = decoder.decode(data);
+            final short[] voice = new short[FRAME_SAMPLES];
+            for (int i = 0; i < voice.length && 2 * i + 1 < pcm.length; i++) {
+                voice[i] = (short) ((pcm[2 * i] & 0xFF) | (pcm[2 * i + 1] << 8));
+            }
+            return voice;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Reassembles the chunks of a transfer (file or audio) whatever their arrival order.
+ *
+ * The data of every chunk is stored in the slot corresponding to its chunk number and a bitmap keeps track of the
+ * received slots, so that inserting a chunk is done in constant time and a chunk received twice is ignored.
+ * A digest of the whole transfer can be computed while the chunks are received, without buffering them twice.
+ * When the number of chunks is not known in advance (streamed transfers), the slots grow with the received chunks
+ * until the total is set.
+ */
+public class ChunkAssembler {
+
+    public static final long UNKNOWN_TOTAL = -1;
+
+    private byte[][] slots;
+    private long chunksTotalNumber;
+    private final BitSet received;
+    private int receivedCount = 0;
+    private long length = 0;
+
+    private final MessageDigest messageDigest;
+    //Number of chunks, from the first one, already added to the digest.
+    private int digested = 0;
+    private byte[] digest;
+
+    public ChunkAssembler(long chunksTotalNumber) {
+        this(chunksTotalNumber, null);
+    }
+
+    /**
+     * @param chunksTotalNumber Number of chunks of the transfer, or UNKNOWN_TOTAL if it is streamed.
+     * @param digestAlgorithm Algorithm of the digest computed while the chunks are received, null for none.
+     */
+    public ChunkAssembler(long chunksTotalNumber, String digestAlgorithm) {
+        if (chunksTotalNumber != UNKNOWN_TOTAL && (chunksTotalNumber < 0 || chunksTotalNumber > Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("Invalid number of chunks : " + chunksTotalNumber);
+        }
+        this.chunksTotalNumber = chunksTotalNumber;
+        this.slots = new byte[(chunksTotalNumber == UNKNOWN_TOTAL) ? 16 : (int)chunksTotalNumber][];
+        this.received = new BitSet(slots.length);
+        try {
+            this.messageDigest = (digestAlgorithm == null) ? null : MessageDigest.getInstance(digestAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown digest algorithm : " + digestAlgorithm, e);
+        }
+    }
+
+    /**
+     * Stores the data of a chunk.
+     * @return false if the chunk number is out of range or if the chunk has already been received.
+     */
+    public synchronized boolean add(long chunkNumber, byte[] data) {
+        if (chunkNumber < 0 || chunkNumber >= getCapacity() || data == null) return false;
+
+        final int index = (int)chunkNumber;
+        if (received.get(index)) return false;
+
+        if (index >= slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(index + 1, slots.length * 2));
+        }
+        slots[index] = data;
+        received.set(index);
+        receivedCount++;
+        length += data.length;
+        updateDigest();
+        //Wakes up the Threads relaying the chunks while they are received.
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Sets the number of chunks of a streamed transfer, once it is known.
+     * @return false if the total is already set to another value or if chunks beyond it were received.
+     */
+    public synchronized boolean setChunksTotalNumber(long chunksTotalNumber) {
+        if (this.chunksTotalNumber != UNKNOWN_TOTAL) return this.chunksTotalNumber == chunksTotalNumber;
+        if (chunksTotalNumber < 0 || chunksTotalNumber > Integer.MAX_VALUE
+                || received.length() > chunksTotalNumber) return false;
+
+        this.chunksTotalNumber = chunksTotalNumber;
+        slots = Arrays.copyOf(slots, (int)chunksTotalNumber);
+        updateDigest();
+        notifyAll();
+        return true;
+    }
+
+    private long getCapacity() {
+        return (chunksTotalNumber == UNKNOWN_TOTAL) ? Integer.MAX_VALUE : chunksTotalNumber;
+    }
+
+    private void updateDigest() {
+        if (messageDigest == null) return;
+
+        //Only the chunks received contiguously from the first one can be digested, the others wait for the missing.
+        while (digested < slots.length && slots[digested] != null) {
+            messageDigest.update(slots[digested]);
+            digested++;
+        }
+        if (digested == chunksTotalNumber && digest == null) {
+            digest = messageDigest.digest();
+        }
+    }
+
+    public synchronized byte[] get(long chunkNumber) {
+        if (chunkNumber < 0 || chunkNumber >= slots.length) return null;
+        return slots[(int)chunkNumber];
+    }
+
+    /**
+     * Waits for a chunk to be received.
+     * @return The data of the chunk, or null if it was not received in time or is beyond the total number of chunks.
+     */
+    public synchronized byte[] await(long chunkNumber, long timeout) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeout;
+        long remaining = timeout;
+        while (get(chunkNumber) == null && chunkNumber < getCapacity() && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return get(chunkNumber);
+    }
+
+    public synchronized boolean isComplete() {
+        return receivedCount == chunksTotalNumber;
+    }
+
+    /**
+     * @return The number of the first chunk not received yet starting from the given one, or -1 if there is none.
+     */
+    public synchronized int nextMissing(int fromChunkNumber) {
+        final int index = received.nextClearBit(Math.max(0, fromChunkNumber));
+        return index < getCapacity() ? index : -1;
+    }
+
+    /**
+     * @return The numbers of all the chunks not received yet, up to the last one received if the total is unknown.
+     */
+    public synchronized long[] getMissing() {
+        final int end = (chunksTotalNumber == UNKNOWN_TOTAL) ? received.length() : slots.length;
+        final long[] missing = new long[end - received.cardinality()];
+        int i = 0;
+        for (int index = received.nextClearBit(0); index < end; index = received.nextClearBit(index + 1)) {
+            missing[i++] = index;
+        }
+        return missing;
+    }
+
+    /**
+     * @return The digest of the whole transfer, or null if it is not complete or no digest is computed.
+     */
+    public synchronized byte[] getDigest() {
+        return digest;
+    }
+
+    public synchronized int getReceivedCount() {
+        return receivedCount;
+    }
+
+    /**
+     * @return The number of chunks of the transfer, or UNKNOWN_TOTAL while it is streamed.
+     */
+    public synchronized long getChunksTotalNumber() {
+        return chunksTotalNumber;
+    }
+
+    public synchronized long getLength() {
+        return length;
+    }
+
+    /**
+     * Writes the received chunks, in order, to the given stream.
+     */
+    public synchronized void writeTo(OutputStream os) throws IOException {
+        for (byte[] data : slots) {
+            if (data != null) os.write(data);
+        }
+    }
+
+    /**
+     * @return The received chunks, in order, in a single array.
+     */
+    public synchronized byte[] toByteArray() {
+        final byte[] bytes = new byte[Math.toIntExact(length)];
+        int offset = 0;
+        for (byte[] data : slots) {
+            if (data != null) {
+                System.arraycopy(data, 0, bytes, offset, data.length);
+                offset += data.length;
+            }
+        }
+        return bytes;
+    }
+}
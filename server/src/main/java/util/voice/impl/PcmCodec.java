@@ -0,0 +1,40 @@
+package util.voice.impl;
+
+import model.enums.AudioCodecType;
+import util.voice.AudioCodec;
+
+import java.util.Arrays;
+
+public class PcmCodec implements AudioCodec {
+
+    @Override
+    public AudioCodecType getType() {
+        return AudioCodecType.PCM;
+    }
+
+    @Override
+    public int getMaxSamples(int encodedBytes) {
+        return encodedBytes / 2;
+    }
+
+    @Override
+    public byte[] encode(byte[] pcm, int length) {
+        return Arrays.copyOf(pcm, length - length % 2);
+    }
+
+    @Override
+    public int getDecodedLength(byte[] data) {
+        return data.length;
+    }
+
+    @Override
+    public int decode(byte[] data, byte[] pcm) {
+        System.arraycopy(data, 0, pcm, 0, data.length);
+        return data.length;
+    }
+
+    @Override
+    public byte[] decode(byte[] data) {
+        return data;
+    }
+}